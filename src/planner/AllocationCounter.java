@@ -0,0 +1,88 @@
+package planner;
+
+import java.math.BigInteger;
+import java.util.*;
+
+/**
+ * <p>
+ * Counts the safe allocations of all of the events of an AllocationSearch
+ * that extend its partial allocation, without creating any of them.
+ * </p>
+ *
+ * <p>
+ * The counter places and removes events through the search, in the same
+ * depth-first order as its recursive searches. The number found for each
+ * residual problem visited (see AllocationSearch.residual()) is recorded, and
+ * is reused whenever the same residual problem is reached again by placing
+ * the same events at different venues.
+ * </p>
+ */
+final class AllocationCounter {
+
+    // the search whose safe allocations are counted
+    private final AllocationSearch search;
+    // the number of safe completions of each residual problem counted
+    private final Map<Residual, BigInteger> memo;
+    // candidates[d] holds the venues to try for the event placed at depth d
+    private final int[][] candidates;
+
+    /*
+     * invariant: search != null && memo != null && memo only holds counts of
+     * residual problems of search && candidates.length ==
+     * search.getEventCount()
+     */
+
+    /**
+     * Creates a new counter of the safe allocations that extend the partial
+     * allocation of the given search.
+     *
+     * @require search != null && search is not used by anything else while
+     *          the counter counts
+     */
+    AllocationCounter(AllocationSearch search) {
+        this.search = search;
+        memo = new HashMap<>();
+        candidates = new int[search.getEventCount()][];
+    }
+
+    /**
+     * Returns the number of safe allocations of all of the events that extend
+     * the partial allocation of the search.
+     *
+     * @ensure Returns the number of safe allocations of the events to the
+     *         venues that extend the partial allocation. The state of the
+     *         search is left unchanged.
+     */
+    BigInteger countAllocations() {
+        /* BASE CASE: no more events to allocate */
+        int next = search.nextEvent();
+        if (next < 0) {
+            return BigInteger.ONE;
+        }
+        Residual key = search.residual();
+        BigInteger known = memo.get(key);
+        if (known != null) {
+            return known;
+        }
+
+        /* RECURSIVE CASE: there is at least one more event to allocate. */
+        int depth = search.getDepth();
+        if (candidates[depth] == null) {
+            candidates[depth] = new int[search.getVenueCount()];
+        }
+        int[] order = candidates[depth]; // the venues to try, in order
+        int count = search.fillCandidates(next, order);
+        BigInteger result = BigInteger.ZERO; // the number found so far
+        for (int k = 0; k < count; k++) {
+            int i = order[k];
+            // prune the placement if it is already unsafe
+            if (search.tryPlace(next, i)) {
+                result = result.add(countAllocations());
+                search.undoPlace(next, i);
+            }
+        }
+        memo.put(key, result);
+        return result;
+    }
+
+}
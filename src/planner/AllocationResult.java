@@ -0,0 +1,149 @@
+package planner;
+
+import java.util.*;
+
+/**
+ * <p>
+ * An immutable class representing the outcome of a time-limited allocation
+ * search: a status, and the best allocation of events to venues that the
+ * search found before it finished or was stopped.
+ * </p>
+ * 
+ * <p>
+ * If the status is OPTIMAL or FEASIBLE, the allocation is a safe allocation
+ * of all of the events. If it is TIMEOUT, the allocation is the safe partial
+ * allocation of the most events that the search found (which may be empty).
+ * If it is INFEASIBLE, there is no allocation.
+ * </p>
+ */
+public class AllocationResult {
+
+    /**
+     * The violation of a result whose search didn't measure one.
+     */
+    public final static int UNMEASURED = -1;
+
+    // how far the search got
+    private final AllocationStatus status;
+    // the best allocation found (null if the status is INFEASIBLE)
+    private final Map<Event, Venue> allocation;
+    // the least violation of an allocation of all of the events found by the
+    // search (0 if the result is complete, UNMEASURED if it wasn't measured)
+    private final int violation;
+
+    /*
+     * invariant: status != null && (allocation == null iff status ==
+     * INFEASIBLE) && (violation == 0 iff isComplete()) && violation >=
+     * UNMEASURED
+     */
+
+    /**
+     * Creates a new result with the given status and allocation, whose
+     * violation is 0 if the status is OPTIMAL or FEASIBLE, and UNMEASURED
+     * otherwise.
+     * 
+     * @param status
+     *            how far the search got
+     * @param allocation
+     *            the best allocation found, or null if status is INFEASIBLE
+     * @throws NullPointerException
+     *             if status is null, or allocation is null and status is not
+     *             INFEASIBLE
+     * @throws IllegalArgumentException
+     *             if status is INFEASIBLE and allocation is not null
+     */
+    public AllocationResult(AllocationStatus status,
+            Map<Event, Venue> allocation) {
+        this(status, allocation, status == AllocationStatus.OPTIMAL
+                || status == AllocationStatus.FEASIBLE ? 0 : UNMEASURED);
+    }
+
+    /**
+     * Creates a new result with the given status, allocation and violation.
+     * 
+     * @param status
+     *            how far the search got
+     * @param allocation
+     *            the best allocation found, or null if status is INFEASIBLE
+     * @param violation
+     *            the least total traffic above capacity of an allocation of
+     *            all of the events found by the search: 0 if status is
+     *            OPTIMAL or FEASIBLE, and otherwise positive, or UNMEASURED
+     * @throws NullPointerException
+     *             if status is null, or allocation is null and status is not
+     *             INFEASIBLE
+     * @throws IllegalArgumentException
+     *             if status is INFEASIBLE and allocation is not null, or
+     *             violation is not valid for status
+     */
+    public AllocationResult(AllocationStatus status,
+            Map<Event, Venue> allocation, int violation) {
+        if (status == null) {
+            throw new NullPointerException("The status cannot be null.");
+        }
+        if (status == AllocationStatus.INFEASIBLE && allocation != null) {
+            throw new IllegalArgumentException(
+                    "An infeasible result has no allocation.");
+        }
+        if (status != AllocationStatus.INFEASIBLE && allocation == null) {
+            throw new NullPointerException("The allocation cannot be null.");
+        }
+        boolean complete = status == AllocationStatus.OPTIMAL
+                || status == AllocationStatus.FEASIBLE;
+        if (complete ? violation != 0 : violation == 0
+                || violation < UNMEASURED) {
+            throw new IllegalArgumentException("The violation " + violation
+                    + " is not valid for the status " + status + ".");
+        }
+        this.status = status;
+        this.violation = violation;
+        this.allocation = allocation == null ? null : Collections
+                .unmodifiableMap(new HashMap<>(allocation));
+    }
+
+    /**
+     * Returns how far the search got.
+     * 
+     * @return the status of the search
+     */
+    public AllocationStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * Returns the best allocation that the search found: a safe allocation of
+     * all of the events if the status is OPTIMAL or FEASIBLE, the largest safe
+     * partial allocation found if it is TIMEOUT, or null if it is INFEASIBLE.
+     * 
+     * @return an unmodifiable map from events to the venues allocated to
+     *         them, or null
+     */
+    public Map<Event, Venue> getAllocation() {
+        return allocation;
+    }
+
+    /**
+     * Returns how far the search was from a safe allocation of all of the
+     * events: 0 if it found one, and otherwise the least total traffic above
+     * capacity, summed over the corridors, of an allocation of all of the
+     * events that it reached (as measured by a local search), or UNMEASURED
+     * if it didn't measure one.
+     * 
+     * @return the violation of the best allocation of all of the events found
+     */
+    public int getViolation() {
+        return violation;
+    }
+
+    /**
+     * Returns true if the allocation is a safe allocation of all of the
+     * events, and false otherwise.
+     * 
+     * @return true iff the status is OPTIMAL or FEASIBLE
+     */
+    public boolean isComplete() {
+        return status == AllocationStatus.OPTIMAL
+                || status == AllocationStatus.FEASIBLE;
+    }
+
+}
@@ -0,0 +1,1683 @@
+package planner;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * <p>
+ * A depth-first search for safe allocations of events to venues.
+ * </p>
+ *
+ * <p>
+ * The events and venues are indexed by dense integer ids when the search is
+ * created, and the sets of unallocated events, of available venues and of the
+ * venues that can host each event are kept as bit sets, so that the venues to
+ * try for an event are found by a masked bit scan. The traffic generated by
+ * each placement is read from a TrafficTable computed when the search is
+ * created, and the traffic of the partial allocation is kept as an array of
+ * loads indexed by corridor id.
+ * </p>
+ *
+ * <p>
+ * Before searching, the venues that can host each event are restricted to
+ * those that host it in some matching of every event to a distinct venue (see
+ * Matching), so that placements that would leave some other event without a
+ * venue are never tried, and instances with too few suitable venues fail
+ * without any search.
+ * </p>
+ *
+ * <p>
+ * The search keeps the partial allocation being built, the venues that are
+ * already in use and the traffic caused by the partial allocation. Placing an
+ * event at a venue adds the traffic of that placement to the running traffic,
+ * and a placement that overloads one of the venue's corridors is discarded
+ * together with every allocation that would extend it (the traffic on a
+ * corridor can only grow as more events are allocated).
+ * </p>
+ *
+ * <p>
+ * The search also keeps a lower bound on the traffic that every completion
+ * of the partial allocation causes on each corridor: the traffic of the
+ * partial allocation plus, for each unallocated event, the least traffic it
+ * puts on the corridor at any venue that can host it (which is zero unless
+ * every such venue uses the corridor). A placement that makes this bound
+ * exceed the capacity of a corridor is discarded in the same way as one that
+ * overloads the corridor, and an instance whose bound is exceeded before any
+ * event is placed fails without any search.
+ * </p>
+ *
+ * <p>
+ * The recursive searches can also record the residual problems that they
+ * find to have no safe completion in a bounded cache (see NogoodCache), so
+ * that a partial allocation that leaves the same problem (or one with even
+ * more traffic) is abandoned straight away when it is reached again.
+ * </p>
+ *
+ * <p>
+ * The search can also be used to look for the safe allocation that is best
+ * by some objective (see Objective and BranchAndBoundSearch), by branch and
+ * bound: a partial allocation is abandoned as soon as a lower bound on the
+ * value of all of its completions is no better than the best allocation found
+ * so far.
+ * </p>
+ *
+ * <p>
+ * A search can also be made to skip allocations that only differ from one it
+ * visits by swapping interchangeable events or venues (see Symmetry and
+ * setSymmetryBreaking()), so that it visits one allocation of each class.
+ * When it also records failures, the recursive searches instead only try the
+ * first available venue of each class of interchangeable venues, which
+ * depends on the residual problem alone, and record each failure under the
+ * number of events and venues of each class that it leaves, so that a failure
+ * also cuts short every residual problem that is symmetric to it.
+ * </p>
+ *
+ * <p>
+ * Similarly, a search for the first safe allocation can be made to skip
+ * allocations that leave empty a venue that is at least as good as one that
+ * they use (see setDominancePruning()).
+ * </p>
+ *
+ * <p>
+ * A search can be copied, so that separate branches of the search can be
+ * explored independently (e.g. by different threads), and can be given a
+ * cancellation flag or a time limit that stop it soon after the flag is set or
+ * the time runs out (the flag and the clock are only checked every so many
+ * nodes, so that they don't slow the search down).
+ * </p>
+ *
+ * <p>
+ * Besides the recursive searches, the search can be stepped one safe
+ * allocation at a time using an explicit stack (see SteppedAllocationSearch),
+ * which keeps only the current path of the search in memory, and whose
+ * untried part can be split off into an independent search.
+ * </p>
+ */
+class AllocationSearch {
+
+    // the fewest unallocated events for which failures are recorded
+    private final static int MIN_NOGOOD_EVENTS = 3;
+    // the number of nodes visited between checks of the cancellation flag and
+    // the time limit
+    private final static int POLL_INTERVAL = 1 << 10;
+
+    // the events to allocate, in the order given by the event order
+    private final Event[] events;
+    // the venues that events may be allocated to, in the order to try them
+    private final Venue[] venues;
+    // the traffic generated by each event at each venue
+    private final TrafficTable table;
+    // permitted[e] is the set of venues that can host events[e] and are not
+    // forbidden for it
+    private final long[][] permitted;
+    // hosts[e] is the set of venues in permitted[e] that events[e] is matched
+    // to in some matching of every event to a distinct permitted venue
+    private final long[][] hosts;
+    // reach[e] is the set of corridors that events[e] uses at some venue in
+    // hosts[e]
+    private final long[][] reach;
+    // unavoidable[e] holds the corridors that events[e] uses at every venue
+    // in hosts[e], and the least traffic it puts on each of them, interleaved
+    // (i.e. {c0, t0, c1, t1, ...}, in ascending order of corridor id)
+    private final int[][] unavoidable;
+    // the class of interchangeable events of each event (see Symmetry)
+    private final int[] eventClass;
+    // the previous and next event in the class of each event (or -1)
+    private final int[] eventBefore, eventAfter;
+    // the previous and next venue in the class of each venue (or -1)
+    private final int[] venueBefore, venueAfter;
+    // whether some events or some venues are interchangeable
+    private final boolean hasSymmetry;
+    // dominators[v] are the venues that strictly dominate venue v (see
+    // setDominancePruning), or null if dominance isn't used
+    private int[][] dominators;
+    // guests[v] is the set of events e with venue v in hosts[e] (or null if
+    // dominance isn't used)
+    private long[][] guests;
+    // how the next event to allocate is chosen
+    private final EventOrder eventOrder;
+    // how the venues for an event are ordered
+    private final VenueOrder venueOrder;
+
+    // the set of events that are not allocated
+    private final long[] unallocated;
+    // the set of venues that are not allocated an event
+    private final long[] available;
+    // assignment[e] is the venue allocated events[e], or -1 if there is none
+    private final int[] assignment;
+    // load[c] is the traffic caused by the partial allocation on corridor c,
+    // plus any background traffic on it
+    private final int[] load;
+    // pending[c] is the unavoidable traffic of the unallocated events on
+    // corridor c
+    private final int[] pending;
+    // occupant[v] is the event allocated venue v, or -1 if there is none
+    private final int[] occupant;
+    // waiting[i] is the number of unallocated events in class i
+    private final int[] waiting;
+    // the number of events that have been allocated
+    private int depth;
+    // whether only canonical allocations are searched (see keepsCanonical)
+    private boolean symmetric;
+    // whether allocations that use a dominated venue are skipped (see
+    // keepsDominance)
+    private boolean dominant;
+    // when set, the search gives up (may be null if it can't be cancelled)
+    private AtomicBoolean cancelled;
+    // the System.nanoTime() from which the time limit is measured
+    private long startTime;
+    // the nanoseconds after startTime at which the search gives up (or
+    // Long.MAX_VALUE if there is no time limit)
+    private long timeLimit;
+    // the number of nodes to visit before the next check for cancellation
+    private int untilPoll;
+    // whether the search has been found to be cancelled, and has given up
+    private boolean stopped;
+    // the largest partial allocation visited by firstAllocation or by a
+    // BranchAndBoundSearch of this search (or null if none has been visited)
+    private Map<Event, Venue> deepest;
+    // the residual problems found to have no safe completion (null if they
+    // aren't recorded)
+    private NogoodCache nogoods;
+
+    // candidates[d] holds the venues to try for the event placed at depth d
+    private final int[][] candidates;
+    // the sort keys of the venues while candidates are ordered
+    private final double[] keys;
+
+    /*
+     * invariant:
+     *
+     * for each event e, Bits.get(unallocated, e) iff assignment[e] == -1 &&
+     *
+     * for each venue v, !Bits.get(available, v) iff assignment[e] == v for
+     * some event e &&
+     *
+     * no two events are assigned the same venue && load is the traffic caused
+     * by the allocation described by assignment, plus the background traffic
+     * && load[c] <= capacity of c for each corridor c && depth is the number
+     * of events e with assignment[e] != -1 &&
+     *
+     * pending is the sum of the unavoidable traffic of the unallocated events
+     * && load[c] + pending[c] <= capacity of c for each corridor c (unless no
+     * venue can host any event) &&
+     *
+     * occupant[v] == e iff assignment[e] == v && waiting[i] is the number of
+     * unallocated events e with eventClass[e] == i &&
+     *
+     * if symmetric, then each placement satisfied keepsCanonical (or
+     * isFirstOfClass, if usesResidualSymmetry()) when it was made && if
+     * dominant, then each placement satisfied keepsDominance when
+     * it was made && 0 < untilPoll <= POLL_INTERVAL
+     */
+
+    /**
+     * Creates a new search for safe allocations of the given events to the
+     * given venues, starting from the empty allocation.
+     *
+     * @require events != null && venues != null && eventOrder != null &&
+     *          venueOrder != null && !events.contains(null) &&
+     *          !venues.contains(null) && events does not contain duplicate
+     *          events && venues does not contain duplicate venues.
+     */
+    AllocationSearch(List<Event> events, List<Venue> venues,
+            EventOrder eventOrder, VenueOrder venueOrder) {
+        this(events, venues, eventOrder, venueOrder, null);
+    }
+
+    /**
+     * Creates a new search for safe allocations of the given events to the
+     * given venues, starting from the empty allocation, on corridors that
+     * already carry the given background traffic (e.g. the traffic of events
+     * whose venues are fixed elsewhere).
+     *
+     * @require events != null && venues != null && eventOrder != null &&
+     *          venueOrder != null && !events.contains(null) &&
+     *          !venues.contains(null) && events does not contain duplicate
+     *          events && venues does not contain duplicate venues &&
+     *          (background == null || background.isSafe())
+     * @ensure The searches only visit allocations whose traffic, added to the
+     *         background traffic (if it isn't null), is safe.
+     */
+    AllocationSearch(List<Event> events, List<Venue> venues,
+            EventOrder eventOrder, VenueOrder venueOrder, Traffic background) {
+        this(events, venues, eventOrder, venueOrder, background, null);
+    }
+
+    /**
+     * Creates a new search for safe allocations of the given events to the
+     * given venues, starting from the empty allocation, on corridors that
+     * already carry the given background traffic, in which no event is
+     * allocated a venue that is forbidden for it. The forbidden venues are
+     * removed from the domains of the events before the search starts.
+     *
+     * @require events != null && venues != null && eventOrder != null &&
+     *          venueOrder != null && !events.contains(null) &&
+     *          !venues.contains(null) && events does not contain duplicate
+     *          events && venues does not contain duplicate venues &&
+     *          (background == null || background.isSafe())
+     * @ensure The searches only visit allocations whose traffic, added to the
+     *         background traffic (if it isn't null), is safe, and that don't
+     *         allocate any event e a venue in forbidden.get(e) (if forbidden
+     *         isn't null).
+     */
+    AllocationSearch(List<Event> events, List<Venue> venues,
+            EventOrder eventOrder, VenueOrder venueOrder, Traffic background,
+            Map<Event, Set<Venue>> forbidden) {
+        this.events = orderEvents(events, venues, eventOrder);
+        this.venues = orderVenues(venues, venueOrder);
+        this.eventOrder = eventOrder;
+        this.venueOrder = venueOrder;
+        table = new TrafficTable(Arrays.asList(this.events), Arrays.asList(
+                this.venues));
+        permitted = permittedHosts(table, forbidden);
+        // the class of interchangeable events of each event, and of
+        // interchangeable venues of each venue
+        int[] eventClasses = Symmetry.eventClasses(this.events);
+        int[] venueClass = Symmetry.venueClasses(this.venues);
+        if (forbidden != null) {
+            // swapping an event, or a venue, in a forbidden pair with another
+            // member of its class can break the constraint
+            boolean[] eventAlone = new boolean[this.events.length];
+            boolean[] venueAlone = new boolean[this.venues.length];
+            for (int e = 0; e < this.events.length; e++) {
+                for (int v = 0; v < this.venues.length; v++) {
+                    if (table.canHost(e, v) && !Bits.get(permitted[e], v)) {
+                        eventAlone[e] = true;
+                        venueAlone[v] = true;
+                    }
+                }
+            }
+            eventClasses = Symmetry.separate(eventClasses, eventAlone);
+            venueClass = Symmetry.separate(venueClass, venueAlone);
+        }
+        eventClass = eventClasses;
+        eventBefore = Symmetry.previousInClass(eventClass);
+        eventAfter = Symmetry.nextInClass(eventClass);
+        venueBefore = Symmetry.previousInClass(venueClass);
+        venueAfter = Symmetry.nextInClass(venueClass);
+        boolean found = false; // whether two members of a class were found
+        for (int e = 0; e < this.events.length && !found; e++) {
+            found = eventBefore[e] >= 0;
+        }
+        for (int v = 0; v < this.venues.length && !found; v++) {
+            found = venueBefore[v] >= 0;
+        }
+        hasSymmetry = found;
+        hosts = matchableHosts(permitted, this.venues.length);
+        load = new int[table.getCorridorCount()];
+        if (background != null) {
+            for (int c = 0; c < load.length; c++) {
+                load[c] = background.getTraffic(table.getCorridor(c));
+            }
+        }
+        unavoidable = new int[this.events.length][];
+        pending = new int[table.getCorridorCount()];
+        for (int e = 0; e < this.events.length; e++) {
+            unavoidable[e] = unavoidableTraffic(e);
+            for (int k = 0; k < unavoidable[e].length; k += 2) {
+                pending[unavoidable[e][k]] += unavoidable[e][k + 1];
+            }
+        }
+        for (int c = 0; c < pending.length; c++) {
+            if (load[c] + pending[c] > table.getCapacity(c)) {
+                // corridor c is overloaded by every allocation: there is no
+                // safe allocation, so no venue is tried for any event
+                for (long[] hosting : hosts) {
+                    Arrays.fill(hosting, 0);
+                }
+                break;
+            }
+        }
+        reach = new long[this.events.length][];
+        for (int e = 0; e < this.events.length; e++) {
+            reach[e] = Bits.create(table.getCorridorCount());
+            for (int v = Bits.next(hosts[e], 0); v >= 0; v = Bits.next(
+                    hosts[e], v + 1)) {
+                int[] traffic = table.getUsage(e, v);
+                for (int k = 0; k < traffic.length; k += 2) {
+                    Bits.set(reach[e], traffic[k]);
+                }
+            }
+        }
+        unallocated = Bits.full(this.events.length);
+        available = Bits.full(this.venues.length);
+        assignment = new int[this.events.length];
+        Arrays.fill(assignment, -1);
+        occupant = new int[this.venues.length];
+        Arrays.fill(occupant, -1);
+        waiting = new int[this.events.length];
+        for (int e = 0; e < this.events.length; e++) {
+            waiting[eventClass[e]]++;
+        }
+        depth = 0;
+        symmetric = false;
+        dominant = false;
+        dominators = null;
+        guests = null;
+        cancelled = null;
+        startTime = 0;
+        timeLimit = Long.MAX_VALUE;
+        untilPoll = POLL_INTERVAL;
+        stopped = false;
+        deepest = null;
+        nogoods = null;
+        candidates = new int[this.events.length][];
+        keys = new double[this.venues.length];
+    }
+
+    /**
+     * Creates a copy of the given search that is in the same state, but whose
+     * state can be changed independently of the given search.
+     *
+     * @require other != null
+     */
+    AllocationSearch(AllocationSearch other) {
+        events = other.events;
+        venues = other.venues;
+        table = other.table;
+        permitted = other.permitted;
+        hosts = other.hosts;
+        reach = other.reach;
+        unavoidable = other.unavoidable;
+        eventClass = other.eventClass;
+        eventBefore = other.eventBefore;
+        eventAfter = other.eventAfter;
+        venueBefore = other.venueBefore;
+        venueAfter = other.venueAfter;
+        hasSymmetry = other.hasSymmetry;
+        dominators = other.dominators;
+        guests = other.guests;
+        eventOrder = other.eventOrder;
+        venueOrder = other.venueOrder;
+        unallocated = other.unallocated.clone();
+        available = other.available.clone();
+        assignment = other.assignment.clone();
+        load = other.load.clone();
+        pending = other.pending.clone();
+        occupant = other.occupant.clone();
+        waiting = other.waiting.clone();
+        depth = other.depth;
+        symmetric = other.symmetric;
+        dominant = other.dominant;
+        cancelled = other.cancelled;
+        startTime = other.startTime;
+        timeLimit = other.timeLimit;
+        untilPoll = POLL_INTERVAL;
+        stopped = other.stopped;
+        deepest = null;
+        nogoods = null;
+        candidates = new int[events.length][];
+        keys = new double[venues.length];
+    }
+
+    /**
+     * Sets the flag that cancels this search (and any branch later created
+     * from it) once it is set.
+     *
+     * @require cancelled != null
+     * @ensure When cancelled is set, firstAllocation() returns null once it
+     *         has visited at most POLL_INTERVAL more nodes of the search.
+     */
+    void setCancellation(AtomicBoolean cancelled) {
+        this.cancelled = cancelled;
+    }
+
+    /**
+     * Makes this search (and any branch later created from it) give up once
+     * the given number of nanoseconds have passed since the given start time.
+     *
+     * @require startTime is a value of System.nanoTime() && timeLimit >= 0
+     * @ensure Once System.nanoTime() - startTime >= timeLimit,
+     *         firstAllocation() returns null once it has visited at most
+     *         POLL_INTERVAL more nodes of the search.
+     */
+    void setTimeLimit(long startTime, long timeLimit) {
+        this.startTime = startTime;
+        this.timeLimit = timeLimit;
+    }
+
+    /**
+     * Makes the recursive searches record the residual problems that they find
+     * to have no safe completion, in a new cache of about the given number of
+     * bytes, and cut the search short when they reach one again. (Copies of
+     * this search do not share the cache.)
+     *
+     * @require budget >= 0
+     * @ensure firstAllocation() (and a BranchAndBoundSearch of this search)
+     *         record failures in a new cache that uses about budget bytes when
+     *         full, unless the budget is too small to hold any failure, in
+     *         which case no failures are recorded.
+     */
+    void setNogoodBudget(long budget) {
+        nogoods = new NogoodCache(table, budget);
+        if (nogoods.getLimit() == 0) {
+            // a cache that holds nothing would only weaken symmetry breaking
+            nogoods = null;
+        }
+    }
+
+    /**
+     * Returns the number of partial allocations that the recursive searches
+     * cut short because their residual problems were known to fail.
+     *
+     * @ensure Returns the number of failures looked up and found in the cache
+     *         of failures, or 0 if failures are not recorded.
+     */
+    long getNogoodHits() {
+        return nogoods == null ? 0 : nogoods.getHits();
+    }
+
+    /**
+     * Returns the cache of the failures recorded by the recursive searches, or
+     * null if they don't record failures.
+     *
+     * @ensure Returns the cache of failures used by this search.
+     */
+    NogoodCache getNogoods() {
+        return nogoods;
+    }
+
+    /**
+     * Makes the recursive searches record failures in the given cache, or
+     * record none if it is null. (Without a cache, a search that breaks
+     * symmetry keeps to the canonical order, see usesResidualSymmetry.)
+     *
+     * @require nogoods is null or was used by this search before && no
+     *          recursive search of this search is running
+     * @ensure getNogoods() == nogoods
+     */
+    void setNogoods(NogoodCache nogoods) {
+        this.nogoods = nogoods;
+    }
+
+    /**
+     * <p>
+     * Makes the search skip allocations that can be obtained from another
+     * allocation that it visits by swapping interchangeable events or
+     * interchangeable venues (see Symmetry), so that it visits exactly one
+     * allocation of each class of symmetric allocations (the canonical one,
+     * see keepsCanonical).
+     * </p>
+     *
+     * <p>
+     * Skipping non-canonical allocations depends on the events already
+     * placed, not just on the residual problem, so a failure found that way
+     * would not hold for other partial allocations that leave the same
+     * residual problem. If failures are recorded (see setNogoodBudget), the
+     * recursive searches therefore skip placements by a rule that only
+     * depends on the residual problem instead (see usesResidualSymmetry), and
+     * look up failures by the number of unallocated events and available
+     * venues of each class (see classKey), since residual problems that only
+     * differ by swapping interchangeable events or venues have the same safe
+     * completions, up to the swap.
+     * </p>
+     *
+     * @require the search has not started && the search is not stepped (see
+     *          SteppedAllocationSearch) if failures are recorded
+     * @ensure Stepping the search visits exactly the canonical safe
+     *         allocations, and firstAllocation() returns the first safe
+     *         allocation it reaches while searching for one.
+     */
+    void setSymmetryBreaking() {
+        symmetric = hasSymmetry;
+    }
+
+    /**
+     * <p>
+     * Makes the search skip allocations that use a venue while leaving a venue
+     * that dominates it empty, where venue a dominates venue b if venue a can
+     * host every event that venue b can host, putting no more traffic than
+     * venue b on every corridor (and venue b does not dominate venue a in the
+     * same way).
+     * </p>
+     *
+     * <p>
+     * Moving an event from a venue to an empty venue that dominates it keeps
+     * an allocation safe, so if there is a safe allocation then there is one
+     * that skips no dominated venue; the search is only made to skip the
+     * others, so it only suits firstAllocation(). (Venues that dominate each
+     * other are left to setSymmetryBreaking, if they are interchangeable.)
+     * </p>
+     *
+     * @require the search has not started
+     * @ensure The searches only complete partial allocations that can still
+     *         be completed so that, for each venue used, every venue that
+     *         dominates it is also used, and stepping the search only visits
+     *         safe allocations that do so.
+     */
+    void setDominancePruning() {
+        // dominates[a][b] is true iff venue a dominates venue b
+        boolean[][] dominates = new boolean[venues.length][venues.length];
+        for (int a = 0; a < venues.length; a++) {
+            for (int b = 0; b < venues.length; b++) {
+                dominates[a][b] = a != b && dominates(a, b);
+            }
+        }
+        dominators = new int[venues.length][];
+        boolean found = false; // whether some venue is dominated
+        for (int b = 0; b < venues.length; b++) {
+            int count = 0; // the number of venues that dominate b
+            int[] strict = new int[venues.length];
+            for (int a = 0; a < venues.length; a++) {
+                if (dominates[a][b] && !dominates[b][a]) {
+                    strict[count++] = a;
+                }
+            }
+            dominators[b] = Arrays.copyOf(strict, count);
+            found = found || count > 0;
+        }
+        guests = new long[venues.length][];
+        for (int v = 0; v < venues.length; v++) {
+            guests[v] = Bits.create(events.length);
+            for (int e = 0; e < events.length; e++) {
+                if (Bits.get(hosts[e], v)) {
+                    Bits.set(guests[v], e);
+                }
+            }
+        }
+        dominant = found;
+    }
+
+    /**
+     * Returns true if this search has given up because it was cancelled or
+     * its time ran out, and false otherwise. A search that returned without
+     * giving up searched everything it was asked to.
+     *
+     * @ensure Returns true iff the search has found its cancellation flag set
+     *         or its time limit passed.
+     */
+    boolean isCancelled() {
+        return stopped;
+    }
+
+    /**
+     * Returns the largest safe partial allocation visited by
+     * firstAllocation() or by a BranchAndBoundSearch of this search, which is
+     * a safe allocation of all of the events if one was found.
+     *
+     * @ensure Returns a map from some of the events to venues that is a safe
+     *         partial allocation with the most events of those passed to
+     *         recordDeepest(), or null if none has been.
+     */
+    Map<Event, Venue> getDeepestAllocation() {
+        return deepest;
+    }
+
+    /**
+     * Records the partial allocation as the largest one visited, if it is
+     * larger than every one recorded before.
+     *
+     * @ensure getDeepestAllocation() is the partial allocation if it has more
+     *         events than the one before the call (or there was none).
+     */
+    void recordDeepest() {
+        if (deepest == null || depth > deepest.size()) {
+            deepest = toAllocation();
+        }
+    }
+
+    /**
+     * Returns the number of events that this search allocates.
+     *
+     * @ensure Returns the number of events given when the search was created.
+     */
+    int getEventCount() {
+        return events.length;
+    }
+
+    /**
+     * Returns the number of venues that this search allocates events to.
+     *
+     * @ensure Returns the number of venues given when the search was created.
+     */
+    int getVenueCount() {
+        return venues.length;
+    }
+
+    /**
+     * Returns the number of corridors used by the events at the venues.
+     *
+     * @ensure Returns the number of corridors of the traffic table.
+     */
+    int getCorridorCount() {
+        return table.getCorridorCount();
+    }
+
+    /**
+     * Returns event e of this search.
+     *
+     * @require 0 <= e < getEventCount()
+     */
+    Event getEvent(int e) {
+        return events[e];
+    }
+
+    /**
+     * Returns venue v of this search.
+     *
+     * @require 0 <= v < getVenueCount()
+     */
+    Venue getVenue(int v) {
+        return venues[v];
+    }
+
+    /**
+     * Returns the traffic generated by hosting event e at venue v, as a usage
+     * array from the traffic table (see TrafficTable.getUsage).
+     *
+     * @require 0 <= e < getEventCount() && 0 <= v < getVenueCount()
+     * @ensure Returns the usage of event e at venue v, which must not be
+     *         modified.
+     */
+    int[] getUsage(int e, int v) {
+        return table.getUsage(e, v);
+    }
+
+    /**
+     * Returns the venues that the search may allocate event e to.
+     *
+     * @require 0 <= e < getEventCount()
+     * @ensure Returns hosts[e], which must not be modified.
+     */
+    long[] getHosts(int e) {
+        return hosts[e];
+    }
+
+    /**
+     * Returns the set of events that are not allocated.
+     *
+     * @ensure Returns unallocated, which must not be modified, and which
+     *         changes as events are placed and removed.
+     */
+    long[] getUnallocated() {
+        return unallocated;
+    }
+
+    /**
+     * Returns the set of venues that are not allocated an event.
+     *
+     * @ensure Returns available, which must not be modified, and which
+     *         changes as events are placed and removed.
+     */
+    long[] getAvailable() {
+        return available;
+    }
+
+    /**
+     * Returns the venue allocated event e, or -1 if there is none.
+     *
+     * @require 0 <= e < getEventCount()
+     * @ensure Returns assignment[e].
+     */
+    int getVenueOf(int e) {
+        return assignment[e];
+    }
+
+    /**
+     * Returns the number of events that have been allocated.
+     *
+     * @ensure Returns the size of the partial allocation.
+     */
+    int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Returns the number of events that are yet to be allocated.
+     *
+     * @ensure Returns the number of events not in the partial allocation.
+     */
+    int getRemaining() {
+        return events.length - depth;
+    }
+
+    /**
+     * Returns a copy of this search in which event next is allocated to venue
+     * i, or null if that placement is unsafe.
+     *
+     * @require event next is unallocated && venue i is available && venue i
+     *          can host event next
+     * @ensure Returns a new search, independent of this one, whose partial
+     *         allocation is this partial allocation with event next allocated
+     *         to venue i, or null if that allocation is not safe. This search
+     *         is left unchanged.
+     */
+    AllocationSearch branch(int next, int i) {
+        AllocationSearch result = new AllocationSearch(this);
+        if (!result.addLoad(next, table.getUsage(next, i))) {
+            return null;
+        }
+        result.place(next, i);
+        return result;
+    }
+
+    /**
+     * Returns the partial allocation of this search as a map from events to
+     * venues. After SteppedAllocationSearch.advance() returns true, this is a
+     * safe allocation of all of the events.
+     *
+     * @ensure Returns a new map from each allocated event to its venue.
+     */
+    Map<Event, Venue> getAllocation() {
+        return toAllocation();
+    }
+
+    /**
+     * Returns the first safe allocation of all of the events found by the
+     * search, or null if there is no safe allocation.
+     *
+     * @ensure Returns a safe allocation of the events to the venues that
+     *         extends the partial allocation, if there is one, or null
+     *         otherwise (or if the search is cancelled before one is found).
+     *         The state of the search is left unchanged.
+     */
+    Map<Event, Venue> firstAllocation() {
+        if (pollCancelled()) {
+            return null;
+        }
+        recordDeepest();
+        /* BASE CASE: no more events to allocate */
+        int next = nextEvent();
+        if (next < 0) {
+            // any safe allocation will do, even one that would be skipped
+            return toAllocation();
+        }
+
+        // the residual events, venues and loads, if failures are recorded
+        long[] remaining = null;
+        long[] usable = null;
+        int[] loads = null;
+        if (recordsNogoods()) {
+            remaining = nogoodEvents();
+            usable = nogoodVenues();
+            loads = residualLoads();
+            if (nogoods.fails(remaining, usable, loads)) {
+                return null;
+            }
+        }
+
+        /* RECURSIVE CASE: there is at least one more event to allocate. */
+        int count = fillCandidates(next);
+        int[] order = candidates[depth]; // the venues to try, in order
+        for (int k = 0; k < count; k++) {
+            int i = order[k];
+            // the traffic generated by hosting the event at the venue
+            int[] traffic = table.getUsage(next, i);
+            // only search further if the partial allocation is still safe
+            if (addLoad(next, traffic)) {
+                place(next, i);
+                Map<Event, Venue> result = firstAllocation();
+                unplace(next, i);
+                if (result != null) {
+                    removeLoad(traffic);
+                    return result;
+                }
+            }
+            removeLoad(traffic);
+        }
+        // no venue can safely host the event given the partial allocation
+        if (loads != null && !isCancelled()) {
+            nogoods.add(remaining, usable, loads);
+        }
+        return null;
+    }
+
+    /**
+     * Returns the utilisation of corridor c by the lower bound on its traffic
+     * in every completion of the partial allocation.
+     *
+     * @require 0 <= c < table.getCorridorCount()
+     * @ensure Returns (load[c] + pending[c]) / capacity of c.
+     */
+    double utilisation(int c) {
+        return (double) (load[c] + pending[c]) / table.getCapacity(c);
+    }
+
+    /**
+     * Returns a key describing the residual problem of this search: the
+     * unallocated events, the available venues that can host at least one of
+     * them, and the traffic on the corridors that at least one of them uses at
+     * some venue. Venues and corridors that no unallocated event can use have
+     * no effect on how the partial allocation can be completed, so they are
+     * left out of the key.
+     *
+     * @ensure Returns a new key, such that two states of searches of the same
+     *         events and venues with equal keys have exactly the same safe
+     *         completions.
+     */
+    Residual residual() {
+        return new Residual(unallocated.clone(), residualVenues(),
+                residualLoads());
+    }
+
+    /**
+     * Returns true if the residual problem of this search should be looked up
+     * in (and recorded in) its cache of failures, and false otherwise.
+     *
+     * @ensure Returns true iff failures are recorded, allocations are either
+     *         not skipped for symmetry or skipped by usesResidualSymmetry(),
+     *         and at least MIN_NOGOOD_EVENTS events are unallocated.
+     */
+    boolean recordsNogoods() {
+        return nogoods != null && (!symmetric || usesResidualSymmetry())
+                && getRemaining() >= MIN_NOGOOD_EVENTS;
+    }
+
+    /**
+     * <p>
+     * Returns true if symmetric placements are skipped by a rule that only
+     * depends on the residual problem, and false otherwise.
+     * </p>
+     *
+     * <p>
+     * The rule only tries an event at the first available venue of each class
+     * of interchangeable venues: the event can be moved to that venue from any
+     * other available venue of its class in a safe completion, by swapping the
+     * two venues. So a residual problem that has a safe completion has one
+     * that the rule doesn't skip, and a residual problem that the search fails
+     * on really has no safe completion. (Events of the same class are not
+     * ordered, but the residual problems that only differ by swapping them
+     * share one failure, see classKey.)
+     * </p>
+     *
+     * @ensure Returns true iff symmetric && failures are recorded.
+     */
+    private boolean usesResidualSymmetry() {
+        return symmetric && nogoods != null;
+    }
+
+    /**
+     * Returns the unallocated events, as they are recorded in the cache of
+     * failures.
+     *
+     * @ensure Returns a new bit set that is classKey of the unallocated events
+     *         if symmetric, and a copy of unallocated otherwise.
+     */
+    long[] nogoodEvents() {
+        return symmetric ? classKey(unallocated, eventBefore, eventAfter)
+                : unallocated.clone();
+    }
+
+    /**
+     * Returns the residual venues (see residualVenues), as they are recorded
+     * in the cache of failures.
+     *
+     * @ensure Returns a new bit set that is classKey of residualVenues() if
+     *         symmetric, and residualVenues() otherwise.
+     */
+    long[] nogoodVenues() {
+        long[] result = residualVenues();
+        return symmetric ? classKey(result, venueBefore, venueAfter) : result;
+    }
+
+    /**
+     * Returns the set with the same number of members of each class as the
+     * given set, that holds the first members of each class.
+     *
+     * @require members is a bit set of items whose previous and next items in
+     *          their classes are given by before and after
+     * @ensure Returns a new bit set holding, for each class with k members in
+     *         members, the first k items of the class (and nothing else).
+     */
+    private static long[] classKey(long[] members, int[] before,
+            int[] after) {
+        // first[i] is the first item of the class of item i
+        int[] first = new int[before.length];
+        for (int i = 0; i < first.length; i++) {
+            first[i] = before[i] < 0 ? i : first[before[i]];
+        }
+        // counts[i] is the number of members in the class of item i, for
+        // the first item i of each class
+        int[] counts = new int[before.length];
+        for (int i = Bits.next(members, 0); i >= 0; i = Bits.next(members, i
+                + 1)) {
+            counts[first[i]]++;
+        }
+        long[] result = new long[members.length];
+        for (int f = 0; f < before.length; f++) {
+            int i = f;
+            for (int k = counts[f]; k > 0; k--) {
+                Bits.set(result, i);
+                i = after[i];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the available venues that can host at least one unallocated
+     * event (or all of the available venues, if dominant).
+     *
+     * @ensure Returns a new bit set of the venues in available and in hosts[e]
+     *         for some unallocated event e, or a copy of available if
+     *         dominant.
+     */
+    private long[] residualVenues() {
+        if (dominant) {
+            // which venues are used decides which placements are skipped
+            return available.clone();
+        }
+        long[] result = Bits.create(venues.length);
+        for (int e = Bits.next(unallocated, 0); e >= 0; e = Bits.next(
+                unallocated, e + 1)) {
+            for (int w = 0; w < result.length; w++) {
+                result[w] |= hosts[e][w] & available[w];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the current traffic on the corridors that at least one
+     * unallocated event uses at some venue.
+     *
+     * @ensure Returns a new array whose c-th entry is load[c] if corridor c is
+     *         in reach[e] for some unallocated event e, and 0 otherwise.
+     */
+    int[] residualLoads() {
+        long[] used = Bits.create(load.length); // corridors the events can use
+        for (int e = Bits.next(unallocated, 0); e >= 0; e = Bits.next(
+                unallocated, e + 1)) {
+            for (int w = 0; w < used.length; w++) {
+                used[w] |= reach[e][w];
+            }
+        }
+        int[] result = new int[load.length];
+        for (int c = Bits.next(used, 0); c >= 0; c = Bits.next(used, c + 1)) {
+            result[c] = load[c];
+        }
+        return result;
+    }
+
+    /**
+     * Returns the next event to allocate, or -1 if every event has been
+     * allocated.
+     *
+     * @ensure Returns an unallocated event chosen according to the event
+     *         order, or -1 if there is no such event.
+     */
+    int nextEvent() {
+        if (eventOrder != EventOrder.FEWEST_VENUES_FIRST) {
+            // events are already in order: take the first unallocated one
+            return Bits.next(unallocated, 0);
+        }
+        int result = -1; // the event with the fewest venues so far
+        int fewest = Integer.MAX_VALUE; // the number of venues it has
+        for (int e = Bits.next(unallocated, 0); e >= 0; e = Bits.next(
+                unallocated, e + 1)) {
+            int count = countVenues(e);
+            if (count < fewest) {
+                result = e;
+                fewest = count;
+            }
+            if (count == 0) {
+                // this event cannot be allocated: fail on it right away
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the venues that are available and can host event next, in the
+     * order in which they should be tried.
+     *
+     * @require event next is unallocated
+     * @ensure Returns a new array of the available venues that can host event
+     *         next, ordered according to the venue order.
+     */
+    int[] candidateVenues(int next) {
+        int count = fillCandidates(next);
+        return Arrays.copyOf(candidates[depth], count);
+    }
+
+    /**
+     * Returns the number of venues that are available and can safely host
+     * event e, given the partial allocation.
+     *
+     * @require event e is unallocated
+     * @ensure Returns the number of available venues that can host event e and
+     *         whose traffic for it fits on top of the current traffic.
+     */
+    private int countVenues(int e) {
+        int count = 0; // the number of venues found so far
+        for (int v = Bits.next(hosts[e], available, 0); v >= 0; v = Bits.next(
+                hosts[e], available, v + 1)) {
+            if (fits(e, table.getUsage(e, v))) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Stores the venues that are available and can host event next in
+     * candidates[depth], in the order in which they should be tried, and
+     * returns the number of them.
+     *
+     * @require event next is unallocated
+     * @ensure candidates[depth][0 .. result - 1] are the venues given by
+     *         fillCandidates(next, candidates[depth]).
+     */
+    private int fillCandidates(int next) {
+        if (candidates[depth] == null) {
+            candidates[depth] = new int[venues.length];
+        }
+        return fillCandidates(next, candidates[depth]);
+    }
+
+    /**
+     * Stores the venues that are available and can host event next in the
+     * given array, in the order in which they should be tried, and returns
+     * the number of them.
+     *
+     * @require event next is unallocated && order != null && order.length >=
+     *          getVenueCount()
+     * @ensure order[0 .. result - 1] are the available venues that can host
+     *         event next (in a canonical allocation, if symmetric, or only the
+     *         first available venue of each class, if usesResidualSymmetry(),
+     *         and without leaving a dominating venue empty, if dominant),
+     *         ordered according to the venue order.
+     */
+    int fillCandidates(int next, int[] order) {
+        int count = 0; // the number of venues found so far
+        boolean residual = usesResidualSymmetry();
+        int least = symmetric && !residual ? leastWaitingClass(next) : 0;
+        for (int v = Bits.next(hosts[next], available, 0); v >= 0; v = Bits
+                .next(hosts[next], available, v + 1)) {
+            if ((!symmetric || (residual ? isFirstOfClass(v)
+                    : keepsCanonical(next, v, least))) && (!dominant
+                            || keepsDominance(next, v))) {
+                order[count++] = v;
+            }
+        }
+        if (venueOrder == VenueOrder.LEAST_LOADED_FIRST) {
+            for (int k = 0; k < count; k++) {
+                keys[order[k]] = peakUtilisation(table.getUsage(next,
+                        order[k]));
+            }
+            // stable insertion sort, since there are usually few candidates
+            for (int k = 1; k < count; k++) {
+                int v = order[k];
+                int j = k - 1;
+                while (j >= 0 && keys[order[j]] > keys[v]) {
+                    order[j + 1] = order[j];
+                    j--;
+                }
+                order[j + 1] = v;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * <p>
+     * Returns true if placing event e at venue w keeps the partial allocation
+     * canonical, and false otherwise.
+     * </p>
+     *
+     * <p>
+     * Of all of the allocations obtained from each other by swapping
+     * interchangeable events and venues, exactly one is canonical: the one in
+     * which (1) the events of each class of events are hosted at venues in
+     * ascending order, and (2) the venues of each class of venues host events
+     * in ascending order of class, with the venues that don't host an event
+     * last. Placements are checked against the nearest placed event and venue
+     * of the same classes, and the rest of (2) is checked by isCanonical() once
+     * every event is placed.
+     * </p>
+     *
+     * @require event e is unallocated && venue w is available && least is
+     *          leastWaitingClass(e)
+     * @ensure Returns true iff placing event e at venue w satisfies (1) with
+     *         the placed events of its class, and satisfies (2) with the venues
+     *         before and after w in its class (where the venue before w is
+     *         only allowed to be empty if an unallocated event of class at
+     *         most that of e remains to fill it).
+     */
+    private boolean keepsCanonical(int e, int w, int least) {
+        for (int a = eventBefore[e]; a >= 0; a = eventBefore[a]) {
+            if (assignment[a] >= 0) {
+                if (assignment[a] > w) {
+                    return false;
+                }
+                break;
+            }
+        }
+        for (int b = eventAfter[e]; b >= 0; b = eventAfter[b]) {
+            if (assignment[b] >= 0) {
+                if (assignment[b] < w) {
+                    return false;
+                }
+                break;
+            }
+        }
+        int u = venueBefore[w]; // the venue before w in its class
+        if (u >= 0 && (occupant[u] >= 0 ? eventClass[occupant[u]]
+                : least) > eventClass[e]) {
+            return false;
+        }
+        int x = venueAfter[w]; // the venue after w in its class
+        return x < 0 || occupant[x] < 0 || eventClass[occupant[x]]
+                >= eventClass[e];
+    }
+
+    /**
+     * Returns true if venue w is the first available venue of its class (see
+     * usesResidualSymmetry), and false otherwise.
+     *
+     * @require venue w is available
+     * @ensure Returns true iff no venue before w in its class is available.
+     */
+    private boolean isFirstOfClass(int w) {
+        for (int u = venueBefore[w]; u >= 0; u = venueBefore[u]) {
+            if (Bits.get(available, u)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the least class of the unallocated events other than event e.
+     *
+     * @require event e is unallocated
+     * @ensure Returns the least i such that some unallocated event other than
+     *         e is in class i, or Integer.MAX_VALUE if there is none.
+     */
+    private int leastWaitingClass(int e) {
+        for (int i = 0; i < waiting.length; i++) {
+            if (waiting[i] > (i == eventClass[e] ? 1 : 0)) {
+                return i;
+            }
+        }
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * Returns true if placing event e at venue b still allows every venue that
+     * dominates venue b to be used, and false otherwise.
+     *
+     * @require dominant && event e is unallocated && venue b is available
+     * @ensure Returns true iff every venue that dominates venue b is either
+     *         used, or can host some unallocated event other than e.
+     */
+    private boolean keepsDominance(int e, int b) {
+        for (int a : dominators[b]) {
+            if (occupant[a] < 0) {
+                // some other unallocated event must still be able to use a
+                int f = Bits.next(guests[a], unallocated, 0);
+                if (f == e) {
+                    f = Bits.next(guests[a], unallocated, e + 1);
+                }
+                if (f < 0) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns true if venue a dominates venue b (see setDominancePruning), and
+     * false otherwise.
+     *
+     * @require 0 <= a, b < venues.length
+     * @ensure Returns true iff for each event e that venue b is permitted to
+     *         host, venue a is permitted to host e and puts no more traffic
+     *         than venue b on each corridor.
+     */
+    private boolean dominates(int a, int b) {
+        for (int e = 0; e < events.length; e++) {
+            if (Bits.get(permitted[e], b) && (!Bits.get(permitted[e], a)
+                    || !lighter(table.getUsage(e, a), table.getUsage(e, b)))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns true if the first usage puts no more traffic than the second on
+     * every corridor, and false otherwise.
+     *
+     * @require lighter and heavier are usage arrays from the traffic table
+     * @ensure Returns true iff for each corridor c used by lighter, heavier
+     *         also uses c, with at least as much traffic.
+     */
+    private static boolean lighter(int[] lighter, int[] heavier) {
+        int j = 0; // the position in heavier of the next corridor to compare
+        for (int k = 0; k < lighter.length; k += 2) {
+            while (j < heavier.length && heavier[j] < lighter[k]) {
+                j += 2;
+            }
+            if (j == heavier.length || heavier[j] != lighter[k]
+                    || heavier[j + 1] < lighter[k + 1]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns true if the allocation of all of the events reached by the
+     * search is kept by the rules that skip allocations (see isCanonical and
+     * isUndominated), and false otherwise.
+     *
+     * @require every event is allocated
+     * @ensure Returns true iff isCanonical() && isUndominated().
+     */
+    boolean isKept() {
+        return isCanonical() && isUndominated();
+    }
+
+    /**
+     * Returns true if no venue that is used is dominated by an empty venue,
+     * and false otherwise.
+     *
+     * @ensure Returns true iff !dominant, or for each venue used, every venue
+     *         that dominates it is used.
+     */
+    private boolean isUndominated() {
+        if (!dominant) {
+            return true;
+        }
+        for (int b = 0; b < venues.length; b++) {
+            if (occupant[b] >= 0) {
+                for (int a : dominators[b]) {
+                    if (occupant[a] < 0) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns true if the partial allocation is canonical (see
+     * keepsCanonical), given that every placement satisfied keepsCanonical
+     * when it was made, and false otherwise.
+     *
+     * @ensure Returns true iff !symmetric, or no venue that hosts an event
+     *         comes after an empty venue of the same class.
+     */
+    private boolean isCanonical() {
+        if (!symmetric) {
+            return true;
+        }
+        for (int v = 0; v < venues.length; v++) {
+            if (occupant[v] >= 0 && venueBefore[v] >= 0
+                    && occupant[venueBefore[v]] < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the highest utilisation (traffic divided by capacity) of the
+     * corridors used by the given usage, if that usage were added to the
+     * current traffic.
+     *
+     * @require traffic is a usage array from the traffic table
+     * @ensure Returns the maximum of (load[c] + t) / capacity of c over the
+     *         corridors c used by traffic, or 0 if there are none.
+     */
+    private double peakUtilisation(int[] traffic) {
+        double result = 0; // the highest utilisation so far
+        for (int k = 0; k < traffic.length; k += 2) {
+            int c = traffic[k]; // the corridor used
+            double utilisation = (double) (load[c] + traffic[k + 1]) / table
+                    .getCapacity(c);
+            result = Math.max(result, utilisation);
+        }
+        return result;
+    }
+
+    /**
+     * Allocates event next to venue i, if the partial allocation stays safe,
+     * returning true if it does and false otherwise.
+     *
+     * @require event next is unallocated && venue i is available && venue i
+     *          can host event next
+     * @ensure Returns true iff addLoad(next, its usage at venue i) would, in
+     *         which case event next is allocated to venue i; otherwise the
+     *         state of the search is left unchanged.
+     */
+    boolean tryPlace(int next, int i) {
+        int[] traffic = table.getUsage(next, i); // the traffic of the venue
+        if (!addLoad(next, traffic)) {
+            removeLoad(traffic);
+            return false;
+        }
+        place(next, i);
+        return true;
+    }
+
+    /**
+     * Undoes a previous call to tryPlace(next, i) that returned true.
+     *
+     * @require tryPlace(next, i) was the last placement made
+     * @ensure The state of the search is as it was before that call.
+     */
+    void undoPlace(int next, int i) {
+        unplace(next, i);
+        removeLoad(table.getUsage(next, i));
+    }
+
+    /**
+     * Records that event next is allocated to venue i.
+     *
+     * @require event next is unallocated && venue i is available
+     * @ensure assignment[next] == i && event next is allocated && venue i is
+     *         not available && the unavoidable traffic of event next is no
+     *         longer pending
+     */
+    private void place(int next, int i) {
+        assignment[next] = i;
+        occupant[i] = next;
+        waiting[eventClass[next]]--;
+        Bits.clear(unallocated, next);
+        Bits.clear(available, i);
+        int[] floor = unavoidable[next]; // the traffic no longer pending
+        for (int k = 0; k < floor.length; k += 2) {
+            pending[floor[k]] -= floor[k + 1];
+        }
+        depth++;
+    }
+
+    /**
+     * Undoes a previous call to place(next, i).
+     *
+     * @require place(next, i) was the last placement made
+     * @ensure assignment[next] == -1 && event next is unallocated && venue i
+     *         is available && the unavoidable traffic of event next is pending
+     */
+    private void unplace(int next, int i) {
+        assignment[next] = -1;
+        occupant[i] = -1;
+        waiting[eventClass[next]]++;
+        Bits.set(unallocated, next);
+        Bits.set(available, i);
+        int[] floor = unavoidable[next]; // the traffic pending once more
+        for (int k = 0; k < floor.length; k += 2) {
+            pending[floor[k]] += floor[k + 1];
+        }
+        depth--;
+    }
+
+    /**
+     * Returns true if this search has been cancelled, checking the
+     * cancellation flag and the time limit only once every POLL_INTERVAL
+     * calls, so that visiting a node stays cheap.
+     *
+     * @ensure Returns true iff the search has given up, which it does if this
+     *         is the POLL_INTERVAL-th call since the last check and the
+     *         cancellation flag is set or the time limit has passed.
+     */
+    boolean pollCancelled() {
+        if (!stopped && --untilPoll == 0) {
+            untilPoll = POLL_INTERVAL;
+            stopped = (cancelled != null && cancelled.get())
+                    || (timeLimit != Long.MAX_VALUE && System.nanoTime()
+                            - startTime >= timeLimit);
+        }
+        return stopped;
+    }
+
+    /**
+     * Returns the partial allocation as a map from events to venues.
+     *
+     * @ensure Returns a new map from each allocated event to its venue.
+     */
+    private Map<Event, Venue> toAllocation() {
+        Map<Event, Venue> result = new HashMap<>();
+        for (int e = 0; e < events.length; e++) {
+            if (assignment[e] >= 0) {
+                result.put(events[e], venues[assignment[e]]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns true if event e could be hosted at the venue with the given
+     * usage without overloading any corridor, or making the bound on the
+     * traffic of some corridor exceed its capacity, and false otherwise.
+     *
+     * @require event e is unallocated && traffic is the usage of event e at
+     *          some venue in the traffic table
+     * @ensure Returns true iff load[c] + t + pending[c] - u <= capacity of c
+     *         for every corridor c used by traffic, where t is the traffic it
+     *         puts on c and u is the unavoidable traffic of event e on c.
+     */
+    private boolean fits(int e, int[] traffic) {
+        int[] floor = unavoidable[e]; // the unavoidable traffic of event e
+        int j = 0; // the position in floor of the next corridor
+        for (int k = 0; k < traffic.length; k += 2) {
+            int c = traffic[k]; // the corridor used
+            int bound = load[c] + traffic[k + 1] + pending[c];
+            if (j < floor.length && floor[j] == c) {
+                bound -= floor[j + 1];
+                j += 2;
+            }
+            if (bound > table.getCapacity(c)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Adds the given usage of event e to the current traffic, returning true
+     * if every corridor that it uses is still within its capacity, even once
+     * the unavoidable traffic of the other unallocated events is added, and
+     * false otherwise.
+     *
+     * @require event e is unallocated && traffic is the usage of event e at
+     *          some venue in the traffic table
+     * @ensure Updates load by adding traffic to it, and returns true if and
+     *         only if load[c] + pending[c] - u <= capacity of c for every
+     *         corridor c used by traffic, where u is the unavoidable traffic
+     *         of event e on c.
+     */
+    private boolean addLoad(int e, int[] traffic) {
+        boolean safe = true; // whether the touched corridors are safe
+        int[] floor = unavoidable[e]; // the unavoidable traffic of event e
+        int j = 0; // the position in floor of the next corridor
+        for (int k = 0; k < traffic.length; k += 2) {
+            int c = traffic[k]; // the corridor used
+            load[c] += traffic[k + 1];
+            int bound = load[c] + pending[c];
+            if (j < floor.length && floor[j] == c) {
+                bound -= floor[j + 1];
+                j += 2;
+            }
+            if (bound > table.getCapacity(c)) {
+                safe = false;
+            }
+        }
+        return safe;
+    }
+
+    /**
+     * Removes the given usage from the current traffic, undoing a previous
+     * call to addLoad(e, traffic).
+     *
+     * @require traffic has previously been added to load
+     * @ensure Updates load by subtracting traffic from it.
+     */
+    private void removeLoad(int[] traffic) {
+        for (int k = 0; k < traffic.length; k += 2) {
+            load[traffic[k]] -= traffic[k + 1];
+        }
+    }
+
+    /**
+     * Returns the corridors that event e uses at every venue in hosts[e], and
+     * the least traffic it puts on each of them at any of those venues. This
+     * traffic is caused by every allocation of the event, wherever it is
+     * hosted.
+     *
+     * @require hosts[e] has been computed
+     * @ensure Returns a new array {c0, t0, c1, t1, ...}, in ascending order
+     *         of corridor id, of each corridor c used by event e at every venue
+     *         in hosts[e], with the minimum traffic t it puts on c at them
+     *         (or an empty array if hosts[e] is empty).
+     */
+    private int[] unavoidableTraffic(int e) {
+        int[] uses = new int[table.getCorridorCount()]; // venues using c
+        int[] least = new int[table.getCorridorCount()]; // least traffic on c
+        int count = 0; // the number of venues in hosts[e]
+        for (int v = Bits.next(hosts[e], 0); v >= 0; v = Bits.next(hosts[e],
+                v + 1)) {
+            int[] traffic = table.getUsage(e, v);
+            for (int k = 0; k < traffic.length; k += 2) {
+                int c = traffic[k]; // the corridor used
+                least[c] = uses[c] == 0 ? traffic[k + 1] : Math.min(least[c],
+                        traffic[k + 1]);
+                uses[c]++;
+            }
+            count++;
+        }
+        int size = 0; // the number of unavoidable corridors
+        for (int c = 0; c < uses.length; c++) {
+            if (count > 0 && uses[c] == count) {
+                size++;
+            }
+        }
+        int[] result = new int[2 * size];
+        int k = 0;
+        for (int c = 0; c < uses.length; c++) {
+            if (count > 0 && uses[c] == count) {
+                result[k++] = c;
+                result[k++] = least[c];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the venues of the given table that can host each event of the
+     * table, and are not forbidden for it.
+     *
+     * @require table != null
+     * @ensure Returns new bit sets result such that venue v is in result[e]
+     *         iff venue v can host event e, and forbidden is null or doesn't
+     *         map event e to a set containing venue v.
+     */
+    private static long[][] permittedHosts(TrafficTable table,
+            Map<Event, Set<Venue>> forbidden) {
+        long[][] result = new long[table.getEventCount()][];
+        for (int e = 0; e < result.length; e++) {
+            result[e] = Bits.create(table.getVenueCount());
+            Set<Venue> excluded = forbidden == null ? null : forbidden.get(
+                    table.getEvent(e));
+            for (int v = 0; v < table.getVenueCount(); v++) {
+                if (table.canHost(e, v) && (excluded == null || !excluded
+                        .contains(table.getVenue(v)))) {
+                    Bits.set(result[e], v);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the given permitted venues of each event that it is matched to
+     * in some matching of every event to a distinct permitted venue (see
+     * Matching.restrict). If there is no such matching, then there is no safe
+     * allocation, and no venue is returned for any event, so that the search
+     * fails straight away.
+     *
+     * @require permitted != null && permitted[e] is a bit set of the venues 0
+     *          to venueCount - 1 that event e may be allocated
+     * @ensure Returns new bit sets result such that venue v is in result[e]
+     *         iff event e is matched to venue v in some matching of every
+     *         event to a distinct venue in permitted.
+     */
+    private static long[][] matchableHosts(long[][] permitted,
+            int venueCount) {
+        long[][] matchable = Matching.restrict(permitted, venueCount);
+        if (matchable == null) {
+            long[][] result = new long[permitted.length][];
+            for (int e = 0; e < result.length; e++) {
+                result[e] = Bits.create(venueCount);
+            }
+            return result;
+        }
+        return matchable;
+    }
+
+    /**
+     * Returns the given events, ordered according to eventOrder. Orders that
+     * are recomputed during the search leave the events in the order in which
+     * they are given.
+     *
+     * @require events != null && venues != null && eventOrder != null
+     * @ensure Returns a new array of the given events, ordered according to
+     *         eventOrder (ties are kept in the order given).
+     */
+    private static Event[] orderEvents(List<Event> events, List<Venue> venues,
+            EventOrder eventOrder) {
+        List<Event> result = new ArrayList<>(events);
+        if (eventOrder == EventOrder.LARGEST_FIRST) {
+            result.sort(Comparator.comparingInt(Event::getSize).reversed());
+        } else if (eventOrder == EventOrder.HEAVIEST_TRAFFIC_FIRST) {
+            // the least total traffic each event generates at any venue
+            Map<Event, Integer> weight = new HashMap<>();
+            for (Event event : result) {
+                weight.put(event, leastTotalTraffic(event, venues));
+            }
+            result.sort(Comparator.comparing(weight::get, Comparator
+                    .reverseOrder()));
+        }
+        return result.toArray(new Event[0]);
+    }
+
+    /**
+     * Returns the given venues, ordered according to venueOrder. Orders that
+     * are recomputed during the search leave the venues in the order in which
+     * they are given.
+     *
+     * @require venues != null && venueOrder != null
+     * @ensure Returns a new array of the given venues, ordered according to
+     *         venueOrder (ties are kept in the order given).
+     */
+    private static Venue[] orderVenues(List<Venue> venues,
+            VenueOrder venueOrder) {
+        List<Venue> result = new ArrayList<>(venues);
+        if (venueOrder == VenueOrder.TIGHTEST_FIT_FIRST) {
+            // a bit scan then visits the venues in ascending capacity
+            result.sort(Comparator.comparingInt(Venue::getCapacity));
+        }
+        return result.toArray(new Venue[0]);
+    }
+
+    /**
+     * Returns the least total traffic, summed over all corridors, that the
+     * given event generates at any of the given venues that can host it.
+     *
+     * @require event != null && venues != null && !venues.contains(null)
+     * @ensure Returns the minimum over the venues v that can host event of the
+     *         sum of v.getTraffic(event).getTraffic(c) over all corridors c, or
+     *         Integer.MAX_VALUE if no venue can host event.
+     */
+    private static int leastTotalTraffic(Event event, List<Venue> venues) {
+        int result = Integer.MAX_VALUE; // the least total traffic so far
+        for (Venue venue : venues) {
+            if (venue.canHost(event)) {
+                Traffic traffic = venue.getTraffic(event);
+                int total = 0; // the total traffic at this venue
+                for (Corridor corridor : traffic.getCorridorsWithTraffic()) {
+                    total += traffic.getTraffic(corridor);
+                }
+                result = Math.min(result, total);
+            }
+        }
+        return result;
+    }
+
+}
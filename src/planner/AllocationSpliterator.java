@@ -0,0 +1,85 @@
+package planner;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * <p>
+ * A spliterator over the safe allocations of events to venues, which finds
+ * each allocation lazily, when it is requested.
+ * </p>
+ *
+ * <p>
+ * The spliterator steps an AllocationSearch (see SteppedAllocationSearch),
+ * so beyond the current path of the search it holds no allocations in
+ * memory. Splitting it hands the later half of the untried venues at the
+ * shallowest level of its search to a new spliterator, so that the safe
+ * allocations can be consumed in parallel.
+ * </p>
+ */
+class AllocationSpliterator implements Spliterator<Map<Event, Venue>> {
+
+    // the search that finds the allocations of this spliterator
+    private final SteppedAllocationSearch search;
+
+    /**
+     * Creates a new spliterator over the safe allocations of the given events
+     * to the given venues. If distinct is true, only one allocation is visited
+     * from each class of allocations that can be obtained from each other by
+     * swapping interchangeable events or venues (see Symmetry).
+     *
+     * @require events != null && venues != null && eventOrder != null &&
+     *          venueOrder != null && !events.contains(null) &&
+     *          !venues.contains(null) && events does not contain duplicate
+     *          events && venues does not contain duplicate venues.
+     */
+    AllocationSpliterator(List<Event> events, List<Venue> venues,
+            EventOrder eventOrder, VenueOrder venueOrder, boolean distinct) {
+        AllocationSearch search = new AllocationSearch(events, venues,
+                eventOrder, venueOrder);
+        if (distinct) {
+            search.setSymmetryBreaking();
+        }
+        this.search = new SteppedAllocationSearch(search);
+    }
+
+    /**
+     * Creates a new spliterator over the allocations visited by the given
+     * stepped search.
+     *
+     * @require search != null && search is not used by anything else
+     */
+    private AllocationSpliterator(SteppedAllocationSearch search) {
+        this.search = search;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super Map<Event, Venue>> action) {
+        if (action == null) {
+            throw new NullPointerException("action cannot be null");
+        }
+        if (!search.advance()) {
+            return false;
+        }
+        action.accept(search.getAllocation());
+        return true;
+    }
+
+    @Override
+    public Spliterator<Map<Event, Venue>> trySplit() {
+        SteppedAllocationSearch split = search.split();
+        return split == null ? null : new AllocationSpliterator(split);
+    }
+
+    @Override
+    public long estimateSize() {
+        // the number of allocations is not known without searching for them
+        return Long.MAX_VALUE;
+    }
+
+    @Override
+    public int characteristics() {
+        return DISTINCT | NONNULL;
+    }
+
+}
@@ -0,0 +1,34 @@
+package planner;
+
+/**
+ * How far a time-limited allocation search got (see AllocationResult).
+ */
+public enum AllocationStatus {
+
+    /**
+     * A safe allocation of all of the events was found, and no safe
+     * allocation is better (when there is nothing to optimise, every safe
+     * allocation is as good as any other).
+     */
+    OPTIMAL,
+
+    /**
+     * A safe allocation of all of the events was found, but the search was
+     * stopped before it could show that no safe allocation is better.
+     */
+    FEASIBLE,
+
+    /**
+     * The search showed that there is no safe allocation of all of the
+     * events.
+     */
+    INFEASIBLE,
+
+    /**
+     * The search was stopped, because its time ran out or it was cancelled,
+     * before it found a safe allocation of all of the events or showed that
+     * there is none.
+     */
+    TIMEOUT
+
+}
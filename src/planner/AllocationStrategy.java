@@ -0,0 +1,31 @@
+package planner;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A way of searching for a safe allocation of events to venues within a time
+ * limit, that can be raced against other strategies (see Portfolio).
+ */
+@FunctionalInterface
+public interface AllocationStrategy {
+
+    /**
+     * Searches for a safe allocation of events to venues, giving up soon after
+     * the given time has passed or the given flag is set.
+     * 
+     * @param events
+     *            the events to allocate
+     * @param venues
+     *            the venues that they may be allocated to
+     * @param timeLimit
+     *            how long the search may take
+     * @param cancelled
+     *            a flag that is set when the search should give up
+     * @return the outcome of the search (see AllocationResult)
+     */
+    AllocationResult solve(List<Event> events, List<Venue> venues,
+            Duration timeLimit, AtomicBoolean cancelled);
+
+}
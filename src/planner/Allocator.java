@@ -1,12 +1,32 @@
 package planner;
 
+import java.math.BigInteger;
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Provides a method for finding a safe allocation of events to venues.
  */
 public class Allocator {
 
+    /**
+     * The number of bytes of memory that a search uses, by default, to record
+     * the partial allocations that it has found to have no safe completion.
+     */
+    public final static long DEFAULT_NOGOOD_BUDGET = 8L << 20;
+
+    /**
+     * The number of (event, venue) pairs up to which allocateBySat uses the
+     * exhaustive search instead of the SAT solver, which costs more to set up
+     * than such small instances take to search.
+     */
+    public final static int SAT_THRESHOLD = 256;
+
     /**
      * <p>
      * Returns a safe allocation of events to venues, if there is at least one
@@ -26,92 +46,894 @@ public class Allocator {
      */
     public static Map<Event, Venue> allocate(List<Event> events,
             List<Venue> venues) {
-        // DO NOT MODIFY THE IMPLEMENTATION OF THIS METHOD
-        Set<Map<Event, Venue>> allocations = allocations(events, venues);
-        if (allocations.isEmpty()) {
-            // returns null to signify that there is no possible safe allocation
-            return null;
-        } else {
-            // returns one (any one) of the possible safe allocations
-            return allocations.iterator().next();
-        }
+        return allocate(events, venues, EventOrder.GIVEN, VenueOrder.GIVEN);
     }
 
     /**
-     * Returns the set of all possible safe allocations of events to venues.
+     * <p>
+     * Returns a safe allocation of events to venues, if there is at least one
+     * possible safe allocation, or null otherwise.
+     * </p>
      * 
-     * @require events != null && venues != null && !events.contains(null) &&
+     * <p>
+     * The allocation is found by a depth-first search that stops at the first
+     * safe allocation found. The search chooses the next event to allocate
+     * according to eventOrder, and tries the venues for that event according
+     * to venueOrder. The orders only affect how quickly an allocation is found
+     * (and which one is returned), not whether one is found.
+     * </p>
+     * 
+     * @require events != null && venues != null && eventOrder != null &&
+     *          venueOrder != null && !events.contains(null) &&
      *          !venues.contains(null) && events does not contain duplicate
      *          events && venues does not contain duplicate venues.
-     * @ensure Returns the set of all possible safe allocations of events to
-     *         venues. (Note: if there are no possible allocations, then this
-     *         method should return an empty set of allocations.)
+     * @ensure Returns a safe allocation of events to venues, if there is at
+     *         least one possible safe allocation, or null otherwise.
+     */
+    public static Map<Event, Venue> allocate(List<Event> events,
+            List<Venue> venues, EventOrder eventOrder, VenueOrder venueOrder) {
+        return allocate(events, venues, eventOrder, venueOrder,
+                DEFAULT_NOGOOD_BUDGET);
+    }
+
+    /**
+     * <p>
+     * Returns a safe allocation of events to venues, if there is at least one
+     * possible safe allocation, or null otherwise.
+     * </p>
+     * 
+     * <p>
+     * The problem is first split into independent components: groups of
+     * events that share no venue that could host them and no corridor that
+     * they could use with any other group (see Decomposition). Each component
+     * is searched on its own, so a component that can't be allocated is found
+     * without trying every allocation of the others.
+     * </p>
+     * 
+     * <p>
+     * Events of the same size, and venues that differ only in their names,
+     * are interchangeable, so the search only tries one allocation of each
+     * class of allocations that are the same up to swapping them (see
+     * distinctAllocationStream).
+     * </p>
+     * 
+     * <p>
+     * Similarly, a venue that can host every event that another venue can
+     * host, putting no more traffic on any corridor, is at least as good as
+     * that venue, so the search skips allocations that use a venue while
+     * leaving such a better venue empty.
+     * </p>
+     * 
+     * <p>
+     * The search also records the partial allocations that it finds to have
+     * no safe completion (keyed by the events left to allocate, the venues
+     * left for them and the traffic on the corridors they use), and abandons
+     * any partial allocation that leaves the same events and venues with at
+     * least as much traffic. When some events or venues are interchangeable,
+     * the key only holds the number of events and venues of each class that
+     * are left, so a partial allocation that only differs from a failed one by
+     * swapping interchangeable events or venues is abandoned too; to keep the
+     * failures valid for every partial allocation with the same key, the
+     * search then only tries each event at the first available venue of each
+     * class of interchangeable venues, instead of keeping to the canonical
+     * order of distinctAllocationStream. At most about nogoodBudget bytes are
+     * used to record them, the least recently used being forgotten first; a
+     * budget of zero records none (and symmetry is then broken by the
+     * canonical order alone).
+     * </p>
+     * 
+     * @require events != null && venues != null && eventOrder != null &&
+     *          venueOrder != null && nogoodBudget >= 0 &&
+     *          !events.contains(null) && !venues.contains(null) && events does
+     *          not contain duplicate events && venues does not contain
+     *          duplicate venues.
+     * @ensure Returns a safe allocation of events to venues, if there is at
+     *         least one possible safe allocation, or null otherwise.
+     */
+    public static Map<Event, Venue> allocate(List<Event> events,
+            List<Venue> venues, EventOrder eventOrder, VenueOrder venueOrder,
+            long nogoodBudget) {
+        Decomposition components = new Decomposition(events, venues);
+        Map<Event, Venue> result = new HashMap<>(); // the combined allocation
+        for (int i = 0; i < components.getComponentCount(); i++) {
+            AllocationSearch search = new AllocationSearch(components.getEvents(
+                    i), components.getVenues(i), eventOrder, venueOrder);
+            search.setSymmetryBreaking();
+            search.setDominancePruning();
+            search.setNogoodBudget(nogoodBudget);
+            Map<Event, Venue> allocation = search.firstAllocation();
+            if (allocation == null) {
+                // this component, and so the whole problem, can't be allocated
+                return null;
+            }
+            result.putAll(allocation);
+        }
+        return result;
+    }
+
+    /**
+     * <p>
+     * Returns a safe allocation of events to venues, if there is at least one
+     * possible safe allocation, or null otherwise, starting from a previous
+     * allocation (e.g. one found before some events or venues were added or
+     * removed) and keeping as much of it as it can.
+     * </p>
+     * 
+     * <p>
+     * The placements of the previous allocation that are still possible (of
+     * an event in events, at a venue in venues that can host it) are kept
+     * fixed, and only the events left without a venue are searched for,
+     * using the venues left free and given the traffic of the fixed events.
+     * If they can't all be placed, the search is widened to the neighbourhood
+     * of the events being searched for: the fixed events whose venue could
+     * host one of them, or whose traffic uses a corridor that one of the
+     * venues that could host them also uses. These are freed and searched for
+     * again, and the neighbourhood keeps growing in the same way until a safe
+     * allocation is found, or no fixed event is left that interacts with the
+     * events being searched for (in which case there is no safe allocation).
+     * After a small edit only a few events are searched for, so the new
+     * allocation is usually found far faster than by allocate.
+     * </p>
+     * 
+     * @require events != null && venues != null && previous != null &&
+     *          !events.contains(null) && !venues.contains(null) && events does
+     *          not contain duplicate events && venues does not contain
+     *          duplicate venues && previous is a safe allocation of some
+     *          events to venues.
+     * @ensure Returns a safe allocation of events to venues, if there is at
+     *         least one possible safe allocation, or null otherwise.
+     */
+    public static Map<Event, Venue> reallocate(List<Event> events,
+            List<Venue> venues, Map<Event, Venue> previous) {
+        return reallocate(events, venues, previous, new HashMap<>(),
+                new HashMap<>());
+    }
+
+    /**
+     * <p>
+     * Returns a safe allocation of events to venues that allocates each
+     * pinned event its pinned venue, and doesn't allocate any event a venue
+     * that is forbidden for it, if there is one, or null otherwise. The
+     * pinned events, and the venues they take, are removed from the search
+     * (with the traffic of the pinned events as background traffic), and the
+     * forbidden venues are removed from the venues that each event may be
+     * allocated before the search starts, so the search only has to complete
+     * the pinned allocation.
+     * </p>
+     * 
+     * <p>
+     * Events that are interchangeable, or venues that are interchangeable,
+     * stop being treated as interchangeable if a forbidden pair applies to
+     * only some of them.
+     * </p>
+     * 
+     * @param events
+     *            the events to allocate
+     * @param venues
+     *            the venues to allocate them to
+     * @param pinned
+     *            the venue that each pinned event must be allocated
+     * @param forbidden
+     *            the venues that each event must not be allocated (an event
+     *            that isn't a key may be allocated any venue)
+     * @return a safe allocation of events to venues that extends pinned and
+     *         avoids forbidden, or null if there is none
+     * @throws NullPointerException
+     *             if any of the arguments is null
+     * @throws IllegalArgumentException
+     *             if pinned allocates an event that isn't in events, or a
+     *             venue that isn't in venues
+     */
+    public static Map<Event, Venue> allocate(List<Event> events,
+            List<Venue> venues, Map<Event, Venue> pinned,
+            Map<Event, Set<Venue>> forbidden) {
+        return reallocate(events, venues, pinned, pinned, forbidden);
+    }
+
+    /**
+     * <p>
+     * Returns a safe allocation of events to venues, starting from a previous
+     * allocation (see reallocate(List, List, Map)), that allocates each
+     * pinned event its pinned venue and doesn't allocate any event a venue
+     * that is forbidden for it, if there is one, or null otherwise.
+     * </p>
+     * 
+     * <p>
+     * The pinned events are never moved when the search is widened around
+     * the events left without a venue, and the placements of the previous
+     * allocation that are forbidden are dropped.
+     * </p>
+     * 
+     * @param events
+     *            the events to allocate
+     * @param venues
+     *            the venues to allocate them to
+     * @param previous
+     *            the allocation to start from
+     * @param pinned
+     *            the venue that each pinned event must be allocated
+     * @param forbidden
+     *            the venues that each event must not be allocated (an event
+     *            that isn't a key may be allocated any venue)
+     * @return a safe allocation of events to venues that extends pinned and
+     *         avoids forbidden, or null if there is none
+     * @throws NullPointerException
+     *             if any of the arguments is null
+     * @throws IllegalArgumentException
+     *             if pinned allocates an event that isn't in events, or a
+     *             venue that isn't in venues
+     */
+    public static Map<Event, Venue> reallocate(List<Event> events,
+            List<Venue> venues, Map<Event, Venue> previous,
+            Map<Event, Venue> pinned, Map<Event, Set<Venue>> forbidden) {
+        if (events == null || venues == null || previous == null
+                || pinned == null || forbidden == null) {
+            throw new NullPointerException("The arguments cannot be null.");
+        }
+        // the placements that are kept, while they stay fixed
+        Map<Event, Venue> fixed = new HashMap<>();
+        Set<Venue> allowed = new HashSet<>(venues);
+        Set<Venue> used = new HashSet<>(); // the venues of the fixed events
+        Set<Event> given = new HashSet<>(events);
+        for (Map.Entry<Event, Venue> entry : pinned.entrySet()) {
+            Event event = entry.getKey();
+            Venue venue = entry.getValue();
+            if (!given.contains(event) || !allowed.contains(venue)) {
+                throw new IllegalArgumentException("Pinned events and venues "
+                        + "must be among those allocated.");
+            }
+            if (!isPermitted(event, venue, forbidden) || !used.add(venue)) {
+                return null;
+            }
+            fixed.put(event, venue);
+        }
+        for (Event event : events) {
+            Venue venue = previous.get(event);
+            if (venue != null && !fixed.containsKey(event) && allowed.contains(
+                    venue) && isPermitted(event, venue, forbidden) && used.add(
+                            venue)) {
+                fixed.put(event, venue);
+            }
+        }
+        // the events being searched for, in the order given
+        Set<Event> free = new LinkedHashSet<>();
+        for (Event event : events) {
+            if (!fixed.containsKey(event)) {
+                free.add(event);
+            }
+        }
+        boolean closed = false; // whether no fixed event interacts with free
+        while (true) {
+            Map<Event, Venue> allocation = allocateAmong(free, fixed, venues,
+                    forbidden);
+            if (allocation != null) {
+                allocation.putAll(fixed);
+                return allocation;
+            }
+            if (closed) {
+                return null;
+            }
+            // free the fixed events that interact with the events searched for
+            Set<Event> neighbours = neighbours(free, fixed, pinned, venues);
+            for (Event event : neighbours) {
+                fixed.remove(event);
+                free.add(event);
+            }
+            closed = neighbours.isEmpty();
+        }
+    }
+
+    /**
+     * Returns true if the given venue can host the given event, and isn't
+     * forbidden for it, and false otherwise.
+     * 
+     * @require event != null && venue != null && forbidden != null
+     * @ensure Returns true iff venue.canHost(event) and forbidden doesn't map
+     *         event to a set containing venue.
+     */
+    private static boolean isPermitted(Event event, Venue venue,
+            Map<Event, Set<Venue>> forbidden) {
+        Set<Venue> excluded = forbidden.get(event);
+        return venue.canHost(event) && (excluded == null || !excluded
+                .contains(venue));
+    }
+
+    /**
+     * Returns a safe allocation of the given free events to the venues that
+     * are not used by the given fixed allocation, given the traffic of the
+     * fixed allocation and avoiding the forbidden venues, or null if there is
+     * none.
+     * 
+     * @require free, fixed, venues and forbidden are not null && fixed is an
+     *          allocation of events that are not in free to venues in venues
+     * @ensure Returns a safe allocation of the events in free to the venues in
+     *         venues that fixed doesn't use, that allocates no event e a venue
+     *         in forbidden.get(e) and whose traffic together with that of
+     *         fixed is safe, if there is one, or null otherwise.
      */
-    private static Set<Map<Event, Venue>> allocations(List<Event> events,
+    private static Map<Event, Venue> allocateAmong(Set<Event> free,
+            Map<Event, Venue> fixed, List<Venue> venues,
+            Map<Event, Set<Venue>> forbidden) {
+        Traffic background = new Traffic();
+        for (Map.Entry<Event, Venue> entry : fixed.entrySet()) {
+            background.addTraffic(entry.getValue().getTraffic(entry.getKey()));
+        }
+        if (!background.isSafe()) {
+            return null;
+        }
+        if (free.isEmpty()) {
+            return new HashMap<>();
+        }
+        Set<Venue> used = new HashSet<>(fixed.values());
+        List<Venue> left = new ArrayList<>(); // the venues fixed doesn't use
+        for (Venue venue : venues) {
+            if (!used.contains(venue)) {
+                left.add(venue);
+            }
+        }
+        AllocationSearch search = new AllocationSearch(new ArrayList<>(free),
+                left, EventOrder.GIVEN, VenueOrder.GIVEN, background, forbidden
+                        .isEmpty() ? null : forbidden);
+        search.setSymmetryBreaking();
+        search.setDominancePruning();
+        search.setNogoodBudget(DEFAULT_NOGOOD_BUDGET);
+        return search.firstAllocation();
+    }
+
+    /**
+     * Returns the events of the given fixed allocation, other than the pinned
+     * ones, that interact with the given free events: those whose venue can
+     * host a free event, and those whose traffic uses a corridor that is also
+     * used by a venue that can host a free event.
+     * 
+     * @require free, fixed, pinned and venues are not null && the events of
+     *          fixed are not in free
+     * @ensure Returns the events e of fixed that are not keys of pinned such
+     *         that fixed.get(e) can host some event in free, or the traffic of
+     *         e at fixed.get(e) uses a corridor used by some venue in venues
+     *         that can host an event in free.
+     */
+    private static Set<Event> neighbours(Set<Event> free,
+            Map<Event, Venue> fixed, Map<Event, Venue> pinned,
             List<Venue> venues) {
-        // set of possible allocations
-        Set<Map<Event, Venue>> result = new HashSet<>();
-
-        /* BASE CASE: no more events to allocate */
-        if (events.isEmpty()) {
-            result.add(new HashMap<Event, Venue>());
-            return result;
-        }
-
-        /* RECURSIVE CASE: there is at least one more event to allocate. */
-        // the event to be allocated next
-        Event event = events.get(0);
-        // the rest of the events to be allocated
-        List<Event> remainingEvents = events.subList(1, events.size());
-        for (int i = 0; i < venues.size(); i++) {
-            // find possible safe allocations of event at the ith venue
-            Venue venue = venues.get(i);
-            if (venue.canHost(event)) {
-                venues.remove(i); // remove venue from available venues
-                Set<Map<Event, Venue>> allocations = allocations(
-                        remainingEvents, venues);
-                for (Map<Event, Venue> allocation : allocations) {
-                    allocation.put(event, venue);
-                    if (safeTraffic(allocation)) {
-                        result.add(allocation);
-                    }
+        Set<Venue> candidates = new HashSet<>(); // venues that can host some
+        Set<Corridor> corridors = new HashSet<>(); // corridors they use
+        for (Venue venue : venues) {
+            Event largest = null; // the largest free event the venue can host
+            for (Event event : free) {
+                if (venue.canHost(event) && (largest == null || event
+                        .getSize() > largest.getSize())) {
+                    largest = event;
                 }
-                venues.add(i, venue); // add venue back to available venues
+            }
+            if (largest != null) {
+                // the largest event uses every corridor the venue uses
+                candidates.add(venue);
+                corridors.addAll(venue.getTraffic(largest)
+                        .getCorridorsWithTraffic());
+            }
+        }
+        Set<Event> result = new LinkedHashSet<>();
+        for (Map.Entry<Event, Venue> entry : fixed.entrySet()) {
+            Venue venue = entry.getValue();
+            if (pinned.containsKey(entry.getKey())) {
+                continue;
+            }
+            if (candidates.contains(venue) || !Collections.disjoint(corridors,
+                    venue.getTraffic(entry.getKey())
+                            .getCorridorsWithTraffic())) {
+                result.add(entry.getKey());
             }
         }
         return result;
     }
 
     /**
-     * Returns the traffic caused by the given allocation.
+     * Searches for a safe allocation of events to venues for at most about
+     * the given time, or until the given flag is set, in the same way as
+     * allocate(events, venues, eventOrder, venueOrder, timeLimit, cancelled)
+     * with both orders GIVEN.
      * 
-     * @requires allocation!=null && the keys in allocation are not null and
-     *           each event in keySet of allocation maps to a non-null venue
-     *           that can host that event.
-     * @ensures returns the traffic caused by the given allocation.
+     * @require events != null && venues != null && timeLimit != null &&
+     *          !timeLimit.isNegative() && cancelled != null &&
+     *          !events.contains(null) && !venues.contains(null) && events does
+     *          not contain duplicate events && venues does not contain
+     *          duplicate venues.
+     * @ensure Returns the outcome of the search (see AllocationResult).
      */
-    private static Traffic getUsageOf(Map<Event, Venue> allocation) {
-        Traffic result = new Traffic();
-        for (Event event : allocation.keySet()) {
-            Venue venue = allocation.get(event);
-            result.addTraffic(venue.getTraffic(event));
+    public static AllocationResult allocate(List<Event> events,
+            List<Venue> venues, Duration timeLimit, AtomicBoolean cancelled) {
+        return allocate(events, venues, EventOrder.GIVEN, VenueOrder.GIVEN,
+                timeLimit, cancelled);
+    }
+
+    /**
+     * <p>
+     * Searches for a safe allocation of events to venues, as allocate does,
+     * but gives up once the given time has passed or the given flag is set,
+     * returning the best allocation found so far.
+     * </p>
+     * 
+     * <p>
+     * The clock and the flag are only checked every so many steps of the
+     * search, so that checking them doesn't slow it down; the search may run
+     * on for a little longer than timeLimit, or after cancelled is set.
+     * </p>
+     * 
+     * <p>
+     * The status of the result is OPTIMAL if a safe allocation was found
+     * (every safe allocation is as good as any other), INFEASIBLE if the
+     * search showed that there is none, and TIMEOUT if it gave up first, in
+     * which case the allocation returned is the largest safe partial
+     * allocation found: the allocations found for the components searched
+     * before it gave up (see allocate), together with the largest partial
+     * allocation found for the component it gave up on.
+     * </p>
+     * 
+     * @require events != null && venues != null && eventOrder != null &&
+     *          venueOrder != null && timeLimit != null &&
+     *          !timeLimit.isNegative() && cancelled != null &&
+     *          !events.contains(null) && !venues.contains(null) && events does
+     *          not contain duplicate events && venues does not contain
+     *          duplicate venues.
+     * @ensure Returns the outcome of the search (see AllocationResult).
+     */
+    public static AllocationResult allocate(List<Event> events,
+            List<Venue> venues, EventOrder eventOrder, VenueOrder venueOrder,
+            Duration timeLimit, AtomicBoolean cancelled) {
+        long startTime = System.nanoTime();
+        long limit = toNanos(timeLimit);
+        Decomposition components = new Decomposition(events, venues);
+        Map<Event, Venue> result = new HashMap<>(); // the combined allocation
+        for (int i = 0; i < components.getComponentCount(); i++) {
+            AllocationSearch search = new AllocationSearch(components.getEvents(
+                    i), components.getVenues(i), eventOrder, venueOrder);
+            search.setSymmetryBreaking();
+            search.setDominancePruning();
+            search.setNogoodBudget(DEFAULT_NOGOOD_BUDGET);
+            search.setCancellation(cancelled);
+            search.setTimeLimit(startTime, limit);
+            Map<Event, Venue> allocation = search.firstAllocation();
+            if (allocation == null && search.isCancelled()) {
+                Map<Event, Venue> deepest = search.getDeepestAllocation();
+                if (deepest != null) {
+                    result.putAll(deepest);
+                }
+                return new AllocationResult(AllocationStatus.TIMEOUT, result);
+            }
+            if (allocation == null) {
+                return new AllocationResult(AllocationStatus.INFEASIBLE, null);
+            }
+            result.putAll(allocation);
+        }
+        return new AllocationResult(AllocationStatus.OPTIMAL, result);
+    }
+
+    /**
+     * Returns the safe allocation of events to venues that is best (has the
+     * lowest value) by the given objective, if there is at least one possible
+     * safe allocation, or null otherwise. The search chooses events and venues
+     * in the order in which they are given.
+     * 
+     * @require events != null && venues != null && objective != null &&
+     *          !events.contains(null) && !venues.contains(null) && events does
+     *          not contain duplicate events && venues does not contain
+     *          duplicate venues.
+     * @ensure Returns a safe allocation of events to venues with the lowest
+     *         value of objective, if there is at least one possible safe
+     *         allocation, or null otherwise.
+     */
+    public static Map<Event, Venue> optimise(List<Event> events,
+            List<Venue> venues, Objective objective) {
+        return optimise(events, venues, objective, EventOrder.GIVEN,
+                VenueOrder.GIVEN);
+    }
+
+    /**
+     * Returns the safe allocation of events to venues that is best (has the
+     * lowest value) by the given objective, if there is at least one possible
+     * safe allocation, or null otherwise, searching as optimise(events,
+     * venues, objective, eventOrder, venueOrder, timeLimit, cancelled) does
+     * but without a time limit.
+     * 
+     * @require events != null && venues != null && objective != null &&
+     *          eventOrder != null && venueOrder != null &&
+     *          !events.contains(null) && !venues.contains(null) && events does
+     *          not contain duplicate events && venues does not contain
+     *          duplicate venues.
+     * @ensure Returns a safe allocation of events to venues with the lowest
+     *         value of objective, if there is at least one possible safe
+     *         allocation, or null otherwise.
+     */
+    public static Map<Event, Venue> optimise(List<Event> events,
+            List<Venue> venues, Objective objective, EventOrder eventOrder,
+            VenueOrder venueOrder) {
+        return optimise(events, venues, objective, eventOrder, venueOrder,
+                ChronoUnit.FOREVER.getDuration(), new AtomicBoolean(false))
+                        .getAllocation();
+    }
+
+    /**
+     * <p>
+     * Searches for the safe allocation of events to venues that is best (has
+     * the lowest value) by the given objective, giving up once the given time
+     * has passed or the given flag is set, and returns the best allocation
+     * found.
+     * </p>
+     * 
+     * <p>
+     * Each independent component of the problem (see allocate) is searched on
+     * its own, since the best allocation of the whole problem is made of the
+     * best allocations of the components. Each search is a branch and bound
+     * (see BranchAndBoundSearch): a partial allocation is abandoned once a
+     * lower bound on the value of its completions, computed from the traffic
+     * and the costs of the events that are left, is no better than the best
+     * allocation found so far. The orders of events and venues only affect
+     * how soon good allocations are found (TIGHTEST_FIT_FIRST suits
+     * WASTED_CAPACITY, and LEAST_LOADED_FIRST suits PEAK_UTILISATION).
+     * </p>
+     * 
+     * <p>
+     * The status of the result is OPTIMAL if the allocation returned was shown
+     * to be best, FEASIBLE if the search gave up before it could show that,
+     * INFEASIBLE if there is no safe allocation, and TIMEOUT if the search
+     * gave up before it found any safe allocation of some component (see
+     * allocate).
+     * </p>
+     * 
+     * @require events != null && venues != null && objective != null &&
+     *          eventOrder != null && venueOrder != null && timeLimit != null
+     *          && !timeLimit.isNegative() && cancelled != null &&
+     *          !events.contains(null) && !venues.contains(null) && events does
+     *          not contain duplicate events && venues does not contain
+     *          duplicate venues.
+     * @ensure Returns the outcome of the search (see AllocationResult).
+     */
+    public static AllocationResult optimise(List<Event> events,
+            List<Venue> venues, Objective objective, EventOrder eventOrder,
+            VenueOrder venueOrder, Duration timeLimit,
+            AtomicBoolean cancelled) {
+        long startTime = System.nanoTime();
+        long limit = toNanos(timeLimit);
+        Decomposition components = new Decomposition(events, venues);
+        Map<Event, Venue> result = new HashMap<>(); // the combined allocation
+        boolean proven = true; // whether each allocation found is the best
+        for (int i = 0; i < components.getComponentCount(); i++) {
+            AllocationSearch search = new AllocationSearch(components.getEvents(
+                    i), components.getVenues(i), eventOrder, venueOrder);
+            if (objective.isSymmetric()) {
+                search.setSymmetryBreaking();
+            }
+            search.setNogoodBudget(DEFAULT_NOGOOD_BUDGET);
+            search.setCancellation(cancelled);
+            search.setTimeLimit(startTime, limit);
+            Map<Event, Venue> allocation = new BranchAndBoundSearch(search,
+                    objective).bestAllocation();
+            if (allocation == null && search.isCancelled()) {
+                Map<Event, Venue> deepest = search.getDeepestAllocation();
+                if (deepest != null) {
+                    result.putAll(deepest);
+                }
+                return new AllocationResult(AllocationStatus.TIMEOUT, result);
+            }
+            if (allocation == null) {
+                return new AllocationResult(AllocationStatus.INFEASIBLE, null);
+            }
+            proven = proven && !search.isCancelled();
+            result.putAll(allocation);
+        }
+        return new AllocationResult(proven ? AllocationStatus.OPTIMAL
+                : AllocationStatus.FEASIBLE, result);
+    }
+
+    /**
+     * <p>
+     * Searches for a safe allocation of events to venues by local search, for
+     * instances that are too large for the exhaustive searches, giving up once
+     * the given time has passed or the given flag is set.
+     * </p>
+     * 
+     * <p>
+     * The search starts from an allocation of every event to a distinct venue
+     * that can host it, and moves or swaps one event at a time, preferring
+     * moves that reduce the total traffic above capacity on the corridors (its
+     * violation), and sometimes accepting worse ones to escape local minima
+     * (simulated annealing; see LocalSearch). Each move only looks at the
+     * corridors of the venues involved, so it takes about the same time
+     * however many events and venues there are. The choices of the search are
+     * made by a random number generator with the given seed, so the same seed
+     * gives the same search.
+     * </p>
+     * 
+     * <p>
+     * The status of the result is OPTIMAL if a safe allocation was found,
+     * INFEASIBLE if the events can't even be given distinct venues that can
+     * host them, and otherwise TIMEOUT, in which case the result holds the
+     * least violation reached (see AllocationResult.getViolation) and a safe
+     * part of the allocation with that violation. A local search can't show
+     * that there is no safe allocation in any other way, so on such instances
+     * it runs until it gives up.
+     * </p>
+     * 
+     * @require events != null && venues != null && timeLimit != null &&
+     *          !timeLimit.isNegative() && cancelled != null &&
+     *          !events.contains(null) && !venues.contains(null) && events does
+     *          not contain duplicate events && venues does not contain
+     *          duplicate venues.
+     * @ensure Returns the outcome of the search (see AllocationResult).
+     */
+    public static AllocationResult allocateByLocalSearch(List<Event> events,
+            List<Venue> venues, Duration timeLimit, AtomicBoolean cancelled,
+            long seed) {
+        long startTime = System.nanoTime();
+        LocalSearch search = LocalSearch.create(new TrafficTable(events,
+                venues), new Random(seed));
+        if (search == null) {
+            return new AllocationResult(AllocationStatus.INFEASIBLE, null);
+        }
+        return search.run(cancelled, startTime, toNanos(timeLimit));
+    }
+
+    /**
+     * <p>
+     * Searches for a safe allocation of events to venues with a SAT solver,
+     * giving up once the given time has passed or the given flag is set.
+     * </p>
+     * 
+     * <p>
+     * The instance is encoded with a Boolean variable for each (event, venue)
+     * pair: each event must be allocated exactly one venue and each venue
+     * host at most one event (cardinality constraints encoded into clauses),
+     * and the traffic on each corridor must be at most its capacity (a linear
+     * constraint over the pairs, weighted by their traffic on the corridor).
+     * These are solved by a conflict-driven clause learning solver (see
+     * SatSearch and SatSolver), which learns the reasons for its conflicts
+     * and so avoids repeating them elsewhere in the search. Instances with at
+     * most SAT_THRESHOLD pairs are solved by the exhaustive search instead
+     * (see allocate(List, List, Duration, AtomicBoolean)).
+     * </p>
+     * 
+     * <p>
+     * The status of the result is OPTIMAL if a safe allocation was found,
+     * INFEASIBLE if there is none and TIMEOUT if the search gave up first, in
+     * which case the result holds a safe partial allocation.
+     * </p>
+     * 
+     * @require events != null && venues != null && timeLimit != null &&
+     *          !timeLimit.isNegative() && cancelled != null &&
+     *          !events.contains(null) && !venues.contains(null) && events does
+     *          not contain duplicate events && venues does not contain
+     *          duplicate venues.
+     * @ensure Returns the outcome of the search (see AllocationResult).
+     */
+    public static AllocationResult allocateBySat(List<Event> events,
+            List<Venue> venues, Duration timeLimit, AtomicBoolean cancelled) {
+        if ((long) events.size() * venues.size() <= SAT_THRESHOLD) {
+            return allocate(events, venues, timeLimit, cancelled);
+        }
+        long startTime = System.nanoTime();
+        SatSearch search = SatSearch.create(new TrafficTable(events, venues));
+        if (search == null) {
+            return new AllocationResult(AllocationStatus.INFEASIBLE, null);
+        }
+        return search.run(cancelled, startTime, toNanos(timeLimit));
+    }
+
+    /**
+     * <p>
+     * Returns a safe allocation of events to venues, if there is at least one
+     * possible safe allocation, or null otherwise.
+     * </p>
+     * 
+     * <p>
+     * The search is run in parallel on the common fork/join pool: the
+     * independent components of the problem (see allocate) are searched by
+     * separate tasks, and within each component the branches near the root of
+     * the search are explored by separate tasks, the remaining ones being
+     * cancelled as soon as one of them finds a safe allocation of the
+     * component. Which safe allocation is returned may vary from call to
+     * call.
+     * </p>
+     * 
+     * @require events != null && venues != null && eventOrder != null &&
+     *          venueOrder != null && !events.contains(null) &&
+     *          !venues.contains(null) && events does not contain duplicate
+     *          events && venues does not contain duplicate venues.
+     * @ensure Returns a safe allocation of events to venues, if there is at
+     *         least one possible safe allocation, or null otherwise.
+     */
+    public static Map<Event, Venue> allocateParallel(List<Event> events,
+            List<Venue> venues, EventOrder eventOrder, VenueOrder venueOrder) {
+        return allocateParallel(events, venues, eventOrder, venueOrder,
+                ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Returns a safe allocation of events to venues, if there is at least one
+     * possible safe allocation, or null otherwise. The search is run in
+     * parallel on the given fork/join pool.
+     * 
+     * @require events != null && venues != null && eventOrder != null &&
+     *          venueOrder != null && pool != null && !events.contains(null)
+     *          && !venues.contains(null) && events does not contain duplicate
+     *          events && venues does not contain duplicate venues.
+     * @ensure Returns a safe allocation of events to venues, if there is at
+     *         least one possible safe allocation, or null otherwise.
+     */
+    public static Map<Event, Venue> allocateParallel(List<Event> events,
+            List<Venue> venues, EventOrder eventOrder, VenueOrder venueOrder,
+            ForkJoinPool pool) {
+        return pool.invoke(new DecomposedAllocationSearch(events, venues,
+                eventOrder, venueOrder));
+    }
+
+    /**
+     * <p>
+     * Returns an iterator over all of the possible safe allocations of events
+     * to venues.
+     * </p>
+     * 
+     * <p>
+     * The allocations are found lazily, one at a time as they are requested,
+     * so only the allocation being returned and the current path of the search
+     * are held in memory. Each safe allocation is returned exactly once.
+     * </p>
+     * 
+     * @require events != null && venues != null && !events.contains(null) &&
+     *          !venues.contains(null) && events does not contain duplicate
+     *          events && venues does not contain duplicate venues.
+     * @ensure Returns an iterator that returns each possible safe allocation
+     *         of events to venues exactly once.
+     */
+    public static Iterator<Map<Event, Venue>> allocationIterator(
+            List<Event> events, List<Venue> venues) {
+        return Spliterators.iterator(new AllocationSpliterator(events, venues,
+                EventOrder.GIVEN, VenueOrder.GIVEN, false));
+    }
+
+    /**
+     * <p>
+     * Returns a stream of all of the possible safe allocations of events to
+     * venues.
+     * </p>
+     * 
+     * <p>
+     * The allocations are found lazily, as the stream is consumed, so only the
+     * allocations being processed and the current paths of the search are
+     * held in memory. The stream may be made parallel, in which case the
+     * search is split between the threads consuming it.
+     * </p>
+     * 
+     * <p>
+     * This is the exhaustive enumeration of the safe allocations: the set of
+     * all of them is allocationStream(events, venues).collect(
+     * Collectors.toSet()), while allocate only searches until it finds one.
+     * </p>
+     * 
+     * @require events != null && venues != null && !events.contains(null) &&
+     *          !venues.contains(null) && events does not contain duplicate
+     *          events && venues does not contain duplicate venues.
+     * @ensure Returns a sequential stream of each possible safe allocation of
+     *         events to venues, each appearing exactly once.
+     */
+    public static Stream<Map<Event, Venue>> allocationStream(
+            List<Event> events, List<Venue> venues) {
+        return StreamSupport.stream(new AllocationSpliterator(events, venues,
+                EventOrder.GIVEN, VenueOrder.GIVEN, false), false);
+    }
+
+    /**
+     * <p>
+     * Returns a stream of the possible safe allocations of events to venues
+     * that are distinct up to swapping interchangeable events and venues.
+     * </p>
+     * 
+     * <p>
+     * Events of the same size are interchangeable, and so are venues that
+     * differ only in their names (see Venue.isInterchangeableWith): swapping
+     * them in a safe allocation gives another safe allocation. The stream
+     * holds exactly one allocation of each class of allocations that are the
+     * same up to such swaps, and the search that finds them never explores the
+     * other members of a class, so it is much faster than allocationStream
+     * when there are many interchangeable events or venues. The other members
+     * of a class can be generated on demand using symmetricAllocations.
+     * </p>
+     * 
+     * @require events != null && venues != null && !events.contains(null) &&
+     *          !venues.contains(null) && events does not contain duplicate
+     *          events && venues does not contain duplicate venues.
+     * @ensure Returns a sequential stream with exactly one possible safe
+     *         allocation of events to venues from each class of safe
+     *         allocations that are the same up to swapping interchangeable
+     *         events and venues.
+     */
+    public static Stream<Map<Event, Venue>> distinctAllocationStream(
+            List<Event> events, List<Venue> venues) {
+        return StreamSupport.stream(new AllocationSpliterator(events, venues,
+                EventOrder.GIVEN, VenueOrder.GIVEN, true), false);
+    }
+
+    /**
+     * <p>
+     * Returns a stream of the allocations that can be obtained from the given
+     * allocation by swapping interchangeable events and venues (including the
+     * given allocation itself).
+     * </p>
+     * 
+     * <p>
+     * The allocations are generated lazily, as the stream is consumed, and
+     * each is generated exactly once. If allocation is safe then so are all
+     * of them, so, for example,
+     * distinctAllocationStream(events, venues).flatMap(a ->
+     * symmetricAllocations(a, venues)) is a stream of every possible safe
+     * allocation of events to venues.
+     * </p>
+     * 
+     * @require allocation != null && venues != null && allocation maps
+     *          distinct events to distinct venues in venues &&
+     *          !venues.contains(null) && venues does not contain duplicate
+     *          venues.
+     * @ensure Returns a sequential stream of each allocation of the events of
+     *         allocation to venues that can be obtained from allocation by
+     *         swapping events of the same size and venues that are
+     *         interchangeable, each appearing exactly once.
+     */
+    public static Stream<Map<Event, Venue>> symmetricAllocations(
+            Map<Event, Venue> allocation, List<Venue> venues) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(
+                new SymmetricExpansion(allocation, venues), Spliterator.DISTINCT
+                        | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * <p>
+     * Returns the number of possible safe allocations of events to venues.
+     * </p>
+     * 
+     * <p>
+     * The allocations are counted without being created, separately for each
+     * independent component of the problem (see allocate), the number of
+     * safe allocations being the product of the numbers for the components.
+     * Within a component, partial allocations that leave the same events to
+     * allocate, the same venues available to them and the same traffic on the
+     * corridors they use have the same number of safe completions, so each
+     * such residual problem is only counted once (see AllocationCounter).
+     * </p>
+     * 
+     * @require events != null && venues != null && !events.contains(null) &&
+     *          !venues.contains(null) && events does not contain duplicate
+     *          events && venues does not contain duplicate venues.
+     * @ensure Returns the number of possible safe allocations of events to
+     *         venues (i.e. the size of the set of all of them).
+     */
+    public static BigInteger countAllocations(List<Event> events,
+            List<Venue> venues) {
+        Decomposition components = new Decomposition(events, venues);
+        BigInteger result = BigInteger.ONE; // the product of the counts
+        for (int i = 0; i < components.getComponentCount()
+                && result.signum() > 0; i++) {
+            AllocationSearch search = new AllocationSearch(components
+                    .getEvents(i), components.getVenues(i), EventOrder.GIVEN,
+                    VenueOrder.GIVEN);
+            result = result.multiply(new AllocationCounter(search)
+                    .countAllocations());
         }
         return result;
     }
 
     /**
-     * Returns true if the traffic caused by the given allocation is safe, and
-     * false otherwise.
+     * Returns the given time limit in nanoseconds, or Long.MAX_VALUE if it is
+     * too long to be measured in nanoseconds (more than about 292 years), in
+     * which case it is no limit at all.
      * 
-     * @requires allocation!=null && the keys in allocation are not null and
-     *           each event in keySet of allocation maps to a non-null venue
-     *           that can host that event.
-     * @ensures returns whether or not the traffic in the given allocation is
-     *          safe.
+     * @require timeLimit != null && !timeLimit.isNegative()
      */
-    private static boolean safeTraffic(Map<Event, Venue> allocation) {
-        Traffic traffic = getUsageOf(allocation);
-        return traffic.isSafe();
+    private static long toNanos(Duration timeLimit) {
+        try {
+            return timeLimit.toNanos();
+        } catch (ArithmeticException e) {
+            return Long.MAX_VALUE;
+        }
     }
 
 }
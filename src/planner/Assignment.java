@@ -0,0 +1,129 @@
+package planner;
+
+import java.util.*;
+
+/**
+ * <p>
+ * Minimum-cost assignments of rows to distinct columns of a cost matrix,
+ * found with the Hungarian method.
+ * </p>
+ *
+ * <p>
+ * Given the cost of hosting each unallocated event at each available venue,
+ * the cheapest way of giving every event a distinct venue, ignoring traffic,
+ * costs no more than any completion of a partial allocation, so it bounds the
+ * cost of the completions from below. The rows are added one at a time, each
+ * along a shortest augmenting path with respect to the dual potentials, so
+ * that the cost of the rows added so far only grows (when no cost is
+ * negative) and the method can stop as soon as it exceeds a limit.
+ * </p>
+ *
+ * <p>
+ * The arrays used by the method are kept between calls, so that a search can
+ * compute a bound at every node without allocating memory.
+ * </p>
+ */
+final class Assignment {
+
+    // rowPotential[r] and columnPotential[k] are the dual potentials of row r
+    // and column k (rows and columns are numbered from 1; column 0 is a
+    // dummy column holding the row being added)
+    private final double[] rowPotential, columnPotential;
+    // rowAt[k] is the row assigned to column k, or 0 if there is none
+    private final int[] rowAt;
+    // previous[k] is the column before column k on the shortest augmenting
+    // path
+    private final int[] previous;
+    // slack[k] is the least reduced cost of reaching column k
+    private final double[] slack;
+    // whether each column is on the tree of shortest augmenting paths
+    private final boolean[] reached;
+
+    /**
+     * Creates the arrays for assignments of at most the given numbers of rows
+     * and columns.
+     *
+     * @require maxRows >= 0 && maxColumns >= 0
+     */
+    Assignment(int maxRows, int maxColumns) {
+        rowPotential = new double[maxRows + 1];
+        columnPotential = new double[maxColumns + 1];
+        rowAt = new int[maxColumns + 1];
+        previous = new int[maxColumns + 1];
+        slack = new double[maxColumns + 1];
+        reached = new boolean[maxColumns + 1];
+    }
+
+    /**
+     * Returns the least total cost of assigning each of the first rows rows of
+     * cost to a distinct one of its first columns columns, or a value of at
+     * least limit if that cost is at least limit.
+     *
+     * @require 0 <= rows <= maxRows && 0 <= columns <= maxColumns && cost has
+     *          at least rows rows of at least columns entries && no entry of
+     *          cost is negative or NaN (an infinite entry forbids the pair)
+     * @ensure Returns the least total cost of an assignment of every row to a
+     *         distinct column (infinity if there is none), or some value of at
+     *         least limit if that cost is at least limit.
+     */
+    double minCost(double[][] cost, int rows, int columns, double limit) {
+        if (rows > columns) {
+            return Double.POSITIVE_INFINITY;
+        }
+        Arrays.fill(rowPotential, 0, rows + 1, 0);
+        Arrays.fill(columnPotential, 0, columns + 1, 0);
+        Arrays.fill(rowAt, 0, columns + 1, 0);
+        for (int r = 1; r <= rows; r++) {
+            // add row r by a shortest augmenting path from the dummy column
+            rowAt[0] = r;
+            int column = 0; // the last column added to the tree
+            Arrays.fill(slack, 0, columns + 1, Double.POSITIVE_INFINITY);
+            Arrays.fill(reached, 0, columns + 1, false);
+            do {
+                reached[column] = true;
+                int row = rowAt[column]; // the row reached through column
+                double delta = Double.POSITIVE_INFINITY; // the least slack
+                int next = -1; // the column with the least slack
+                for (int k = 1; k <= columns; k++) {
+                    if (!reached[k]) {
+                        double reduced = cost[row - 1][k - 1]
+                                - rowPotential[row] - columnPotential[k];
+                        if (reduced < slack[k]) {
+                            slack[k] = reduced;
+                            previous[k] = column;
+                        }
+                        if (slack[k] < delta) {
+                            delta = slack[k];
+                            next = k;
+                        }
+                    }
+                }
+                if (next < 0) {
+                    // no column can be reached: row r can't be assigned
+                    return Double.POSITIVE_INFINITY;
+                }
+                for (int k = 0; k <= columns; k++) {
+                    if (reached[k]) {
+                        rowPotential[rowAt[k]] += delta;
+                        columnPotential[k] -= delta;
+                    } else {
+                        slack[k] -= delta;
+                    }
+                }
+                column = next;
+            } while (rowAt[column] != 0);
+            // flip the assignments along the augmenting path
+            do {
+                int before = previous[column];
+                rowAt[column] = rowAt[before];
+                column = before;
+            } while (column != 0);
+            if (-columnPotential[0] >= limit) {
+                // the first r rows already cost too much
+                return -columnPotential[0];
+            }
+        }
+        return -columnPotential[0];
+    }
+
+}
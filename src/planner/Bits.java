@@ -0,0 +1,125 @@
+package planner;
+
+/**
+ * Provides methods for using arrays of longs as sets of small non-negative
+ * integers (bit sets), without allocating any objects.
+ */
+final class Bits {
+
+    // the number of bits in each word of a bit set
+    private final static int WORD_SIZE = 64;
+
+    /**
+     * This class only provides static methods.
+     */
+    private Bits() {
+    }
+
+    /**
+     * Returns a new, empty bit set that can hold the integers 0 to size - 1.
+     *
+     * @require size >= 0
+     * @ensure Returns an array of (size + 63) / 64 zero words.
+     */
+    static long[] create(int size) {
+        return new long[(size + WORD_SIZE - 1) / WORD_SIZE];
+    }
+
+    /**
+     * Returns a new bit set that holds the integers 0 to size - 1.
+     *
+     * @require size >= 0
+     * @ensure Returns a bit set containing exactly 0, 1, ..., size - 1.
+     */
+    static long[] full(int size) {
+        long[] bits = create(size);
+        for (int i = 0; i < size; i++) {
+            set(bits, i);
+        }
+        return bits;
+    }
+
+    /**
+     * Adds i to the given bit set.
+     *
+     * @require bits != null && 0 <= i < 64 * bits.length
+     */
+    static void set(long[] bits, int i) {
+        bits[i / WORD_SIZE] |= 1L << (i % WORD_SIZE);
+    }
+
+    /**
+     * Removes i from the given bit set.
+     *
+     * @require bits != null && 0 <= i < 64 * bits.length
+     */
+    static void clear(long[] bits, int i) {
+        bits[i / WORD_SIZE] &= ~(1L << (i % WORD_SIZE));
+    }
+
+    /**
+     * Returns true if the given bit set contains i, and false otherwise.
+     *
+     * @require bits != null && 0 <= i < 64 * bits.length
+     */
+    static boolean get(long[] bits, int i) {
+        return (bits[i / WORD_SIZE] & (1L << (i % WORD_SIZE))) != 0;
+    }
+
+    /**
+     * Returns the number of integers in the given bit set.
+     *
+     * @require bits != null
+     */
+    static int count(long[] bits) {
+        int result = 0;
+        for (long word : bits) {
+            result += Long.bitCount(word);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the least integer that is greater than or equal to from and is
+     * in the given bit set, or -1 if there is no such integer.
+     *
+     * @require bits != null && from >= 0
+     */
+    static int next(long[] bits, int from) {
+        int w = from / WORD_SIZE; // the word holding from
+        if (w >= bits.length) {
+            return -1;
+        }
+        long word = bits[w] & (-1L << (from % WORD_SIZE));
+        while (word == 0) {
+            if (++w == bits.length) {
+                return -1;
+            }
+            word = bits[w];
+        }
+        return w * WORD_SIZE + Long.numberOfTrailingZeros(word);
+    }
+
+    /**
+     * Returns the least integer that is greater than or equal to from and is
+     * in both of the given bit sets, or -1 if there is no such integer.
+     *
+     * @require bits != null && mask != null && bits.length == mask.length &&
+     *          from >= 0
+     */
+    static int next(long[] bits, long[] mask, int from) {
+        int w = from / WORD_SIZE; // the word holding from
+        if (w >= bits.length) {
+            return -1;
+        }
+        long word = bits[w] & mask[w] & (-1L << (from % WORD_SIZE));
+        while (word == 0) {
+            if (++w == bits.length) {
+                return -1;
+            }
+            word = bits[w] & mask[w];
+        }
+        return w * WORD_SIZE + Long.numberOfTrailingZeros(word);
+    }
+
+}
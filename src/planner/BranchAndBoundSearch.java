@@ -0,0 +1,275 @@
+package planner;
+
+import java.util.*;
+
+/**
+ * <p>
+ * Finds the safe allocation of all of the events of an AllocationSearch that
+ * extends its partial allocation and is best (has the lowest value) by some
+ * objective.
+ * </p>
+ *
+ * <p>
+ * The search is a branch and bound: it keeps the best safe allocation found
+ * so far, and abandons each partial allocation whose completions can't be
+ * better. For peak utilisation, the bound is the highest utilisation of a
+ * corridor by the lower bound on its traffic kept by the search (see
+ * AllocationSearch.utilisation); for a total cost, it is the cost of the
+ * partial allocation plus the least cost of hosting the unallocated events at
+ * distinct available venues, ignoring traffic (see Assignment). Neither bound
+ * is ever more than the value of a completion, so no completion better than
+ * the best found is abandoned.
+ * </p>
+ *
+ * <p>
+ * Events are placed and removed through the search, in the same depth-first
+ * order as its recursive searches, and for peak utilisation the failures of
+ * residual problems are recorded in the cache of the search.
+ * </p>
+ */
+final class BranchAndBoundSearch {
+
+    // the search whose completions are optimised
+    private final AllocationSearch search;
+    // the objective the completions are compared by
+    private final Objective objective;
+    // candidates[d] holds the venues to try for the event placed at depth d
+    private final int[][] candidates;
+    // costs[e][v] is the cost of hosting event e at venue v in the hosts of e
+    // by the objective (or null if it is peak utilisation)
+    private double[][] costs;
+    // cheapest[e] is the least of costs[e][v] over the venues v that can host
+    // event e (or null if costs is null)
+    private double[] cheapest;
+    // the cost above cheapest of hosting each unallocated event at each
+    // available venue, filled in for each bound (or null if costs is null)
+    private double[][] extraCosts;
+    // computes the least extra cost of hosting the unallocated events (or
+    // null if costs is null)
+    private Assignment assigner;
+    // the residual problems found to have no completion better than best
+    // (null if they aren't recorded)
+    private NogoodCache nogoods;
+    // the best safe allocation found (or null if none has been found)
+    private Map<Event, Venue> best;
+    // the value of best by the objective (or infinity if best is null)
+    private double bestValue;
+
+    /*
+     * invariant: search != null && objective != null && candidates.length ==
+     * search.getEventCount() && (costs == null) == (cheapest == null) ==
+     * (extraCosts == null) == (assigner == null) && (best == null) ==
+     * (bestValue == infinity)
+     */
+
+    /**
+     * Creates a new branch and bound search for the completion of the partial
+     * allocation of the given search that is best by the given objective.
+     *
+     * @require search != null && objective != null && if the search breaks
+     *          symmetry, then objective.isSymmetric() && search is not used by
+     *          anything else while this search runs
+     */
+    BranchAndBoundSearch(AllocationSearch search, Objective objective) {
+        this.search = search;
+        this.objective = objective;
+        candidates = new int[search.getEventCount()][];
+        bestValue = Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Returns the safe allocation of all of the events that is best (has the
+     * lowest value) by the objective, or null if there is no safe allocation.
+     *
+     * @ensure Returns a safe allocation of the events to the venues that
+     *         extends the partial allocation of the search, with the lowest
+     *         value by the objective, if there is one, or null otherwise. If
+     *         the search is cancelled, returns the best such allocation found
+     *         before it gave up (or null if it found none). The state of the
+     *         search is left unchanged.
+     */
+    Map<Event, Venue> bestAllocation() {
+        best = null;
+        bestValue = Double.POSITIVE_INFINITY;
+        NogoodCache cache = search.getNogoods(); // the cache of the search
+        if (cache != null) {
+            // failures recorded while optimising only hold for the best
+            // value found at the time, so none are kept from one search to
+            // the next
+            cache.clear();
+        }
+        double bound = 0; // a lower bound on the value of every completion
+        if (objective.isPeakUtilisation()) {
+            costs = null;
+            cheapest = null;
+            extraCosts = null;
+            assigner = null;
+            nogoods = cache;
+            for (int c = 0; c < search.getCorridorCount(); c++) {
+                bound = Math.max(bound, search.utilisation(c));
+            }
+        } else {
+            int eventCount = search.getEventCount();
+            int venueCount = search.getVenueCount();
+            costs = new double[eventCount][venueCount];
+            cheapest = new double[eventCount];
+            extraCosts = new double[eventCount][venueCount];
+            assigner = new Assignment(eventCount, venueCount);
+            for (int e = 0; e < eventCount; e++) {
+                long[] hosts = search.getHosts(e); // the venues for event e
+                cheapest[e] = Double.POSITIVE_INFINITY;
+                for (int v = Bits.next(hosts, 0); v >= 0; v = Bits.next(hosts,
+                        v + 1)) {
+                    costs[e][v] = objective.costOf(search.getEvent(e),
+                            search.getVenue(v));
+                    cheapest[e] = Math.min(cheapest[e], costs[e][v]);
+                }
+                int venue = search.getVenueOf(e); // -1 if e is unallocated
+                bound += venue >= 0 ? costs[e][venue] : cheapest[e];
+            }
+            /*
+             * A total cost also depends on the cost of the partial
+             * allocation, which isn't part of the residual problem, so no
+             * failures are recorded, and without a cache the search keeps to
+             * the canonical order of interchangeable items.
+             */
+            nogoods = null;
+            search.setNogoods(null);
+        }
+        improve(bound);
+        search.setNogoods(cache);
+        if (cache != null) {
+            cache.clear();
+        }
+        return best;
+    }
+
+    /**
+     * Searches the completions of the partial allocation for a safe
+     * allocation that is better than best, given a lower bound on their
+     * values (which, for a total cost, counts each unallocated event at its
+     * least cost).
+     *
+     * @require bestAllocation has set up the costs && bound is no more than
+     *          the value of any completion of the partial allocation (and
+     *          equal to it if every event is allocated)
+     * @ensure If some completion is better than best, then best is the best of
+     *         them and bestValue its value (unless the search is cancelled).
+     *         The state of the search is left unchanged.
+     */
+    private void improve(double bound) {
+        if (search.pollCancelled() || bound >= bestValue) {
+            return;
+        }
+        if (costs != null && bound + extraCost(bestValue - bound)
+                >= bestValue) {
+            return;
+        }
+        search.recordDeepest();
+        /* BASE CASE: no more events to allocate */
+        int next = search.nextEvent();
+        if (next < 0) {
+            best = search.getAllocation();
+            bestValue = bound;
+            return;
+        }
+
+        /*
+         * For peak utilisation, a residual problem with no completion better
+         * than best has none better than any later best either, so failures
+         * can be recorded.
+         */
+        long[] remaining = null;
+        long[] usable = null;
+        int[] loads = null;
+        if (nogoods != null && search.recordsNogoods()) {
+            remaining = search.nogoodEvents();
+            usable = search.nogoodVenues();
+            loads = search.residualLoads();
+            if (nogoods.fails(remaining, usable, loads)) {
+                return;
+            }
+        }
+
+        /* RECURSIVE CASE: there is at least one more event to allocate. */
+        double before = bestValue; // the value of best before the search
+        int depth = search.getDepth();
+        if (candidates[depth] == null) {
+            candidates[depth] = new int[search.getVenueCount()];
+        }
+        int[] order = candidates[depth]; // the venues to try, in order
+        int count = search.fillCandidates(next, order);
+        for (int k = 0; k < count; k++) {
+            int i = order[k];
+            // prune the placement if it is already unsafe
+            if (search.tryPlace(next, i)) {
+                improve(boundAfter(bound, next, i));
+                search.undoPlace(next, i);
+            }
+        }
+        /*
+         * If no better allocation was found, the corridors that the residual
+         * problem can't reach stayed below best, so its failure only depends
+         * on the residual problem.
+         */
+        if (loads != null && bestValue == before && !search.isCancelled()) {
+            nogoods.add(remaining, usable, loads);
+        }
+    }
+
+    /**
+     * Returns the lower bound on the values of the completions of the partial
+     * allocation, given the bound before event e was placed at venue v.
+     *
+     * @require event e was the last event placed, at venue v, and bound was
+     *          the bound before it was placed
+     * @ensure Returns the bound after placing event e at venue v: for a total
+     *         cost, bound plus the cost of the placement less the least cost
+     *         of event e, and for peak utilisation, the highest of bound and
+     *         the utilisation of the corridors used by the placement (the
+     *         only ones whose bound on traffic changed).
+     */
+    private double boundAfter(double bound, int e, int v) {
+        if (costs != null) {
+            return bound + costs[e][v] - cheapest[e];
+        }
+        int[] traffic = search.getUsage(e, v); // the usage of the placement
+        double result = bound;
+        for (int k = 0; k < traffic.length; k += 2) {
+            result = Math.max(result, search.utilisation(traffic[k]));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the least extra cost (above cheapest) of hosting the unallocated
+     * events at distinct available venues that can host them, ignoring
+     * traffic, or a value of at least limit if that cost is at least limit.
+     *
+     * @require costs != null
+     * @ensure Returns the least total of costs[e][v] - cheapest[e] over the
+     *         assignments of each unallocated event e to a distinct available
+     *         venue v that can host it (infinity if there is none), or some
+     *         value of at least limit if that total is at least limit.
+     */
+    private double extraCost(double limit) {
+        long[] unallocated = search.getUnallocated();
+        long[] available = search.getAvailable();
+        int rows = 0; // the number of unallocated events
+        for (int e = Bits.next(unallocated, 0); e >= 0; e = Bits.next(
+                unallocated, e + 1)) {
+            long[] hosts = search.getHosts(e); // the venues for event e
+            int columns = 0; // the number of available venues so far
+            for (int v = Bits.next(available, 0); v >= 0; v = Bits.next(
+                    available, v + 1)) {
+                extraCosts[rows][columns++] = Bits.get(hosts, v)
+                        ? costs[e][v] - cheapest[e]
+                        : Double.POSITIVE_INFINITY;
+            }
+            rows++;
+        }
+        return assigner.minCost(extraCosts, rows, search.getVenueCount()
+                - search.getDepth(), limit);
+    }
+
+}
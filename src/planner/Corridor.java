@@ -20,6 +20,10 @@ public class Corridor implements Comparable<Corridor> {
     private Location end;
     // the maximum capacity of the corridor -- integer units represent people
     private int capacity;
+    // the id of the corridor in the CorridorRegistry (-1 until looked up)
+    private int id;
+    // the hash code of the corridor (computed once, since it is immutable)
+    private int hash;
 
     /*
      * invariant:
@@ -62,6 +66,8 @@ public class Corridor implements Comparable<Corridor> {
         this.start = start;
         this.end = end;
         this.capacity = capacity;
+        this.id = -1;
+        this.hash = computeHashCode();
     }
 
     /**
@@ -91,6 +97,34 @@ public class Corridor implements Comparable<Corridor> {
         return capacity;
     }
 
+    /**
+     * Returns the id of this traffic corridor in the CorridorRegistry. Equal
+     * corridors always have the same id, and the id never changes.
+     * 
+     * @return the id of this traffic corridor
+     */
+    public int getId() {
+        if (id < 0) {
+            // equal corridors get the same id, so racing threads agree on it
+            id = CorridorRegistry.idOf(this);
+        }
+        return id;
+    }
+
+    /**
+     * Returns the id of this traffic corridor in the CorridorRegistry, or -1
+     * if no equal corridor has been registered, without registering it.
+     * 
+     * @ensure Returns getId() if an equal corridor has been registered, and
+     *         -1 otherwise.
+     */
+    int findId() {
+        if (id < 0) {
+            id = CorridorRegistry.find(this);
+        }
+        return id;
+    }
+
     /**
      * <p>
      * This method returns a string of the form: <br>
@@ -127,16 +161,32 @@ public class Corridor implements Comparable<Corridor> {
      */
     @Override
     public boolean equals(Object object) {
+        if (this == object) {
+            return true;
+        }
         if (!(object instanceof Corridor)) {
             return false;
         }
         Corridor other = (Corridor) object; // the corridor to compare
-        return start.equals(other.start) && end.equals(other.end)
-                && capacity == other.capacity;
+        // corridors with different hash codes can't be equal
+        return hash == other.hash && start.equals(other.start) && end.equals(
+                other.end) && capacity == other.capacity;
     }
 
     @Override
     public int hashCode() {
+        return hash;
+    }
+
+    /**
+     * Returns the hash code of this corridor, computed from its start, end
+     * and capacity.
+     * 
+     * @require start != null && end != null
+     * @ensure Returns a hash code that depends only on start, end and
+     *         capacity.
+     */
+    private int computeHashCode() {
         // We create a polynomial hash-code based on start, end and capacity.
         final int prime = 31; // an odd base prime
         int result = 1; // the hash code under construction
@@ -171,6 +221,9 @@ public class Corridor implements Comparable<Corridor> {
      */
     @Override
     public int compareTo(Corridor other) {
+        if (this == other) {
+            return 0;
+        }
         int result = start.compareTo(other.start);
         if (result == 0) {
             result = end.compareTo(other.end);
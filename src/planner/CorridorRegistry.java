@@ -0,0 +1,200 @@
+package planner;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>
+ * A registry that gives each distinct traffic corridor a dense integer id, and
+ * that keeps one canonical instance of each distinct location and corridor.
+ * </p>
+ *
+ * <p>
+ * Ids are allocated in the order in which corridors are first registered,
+ * starting from zero, and a corridor keeps its id for as long as the program
+ * runs. Equal corridors (according to the equals method of the Corridor
+ * class) always have the same id.
+ * </p>
+ *
+ * <p>
+ * The canonical instance of a corridor is the first equal corridor that was
+ * registered. Readers that intern the locations and corridors they create
+ * share one object for each physical corridor, however many venues use it,
+ * and comparisons between canonical instances succeed on their identity
+ * check.
+ * </p>
+ *
+ * <p>
+ * The registry is shared by the whole program and is safe to use from several
+ * threads. Entries are never removed: every distinct corridor and location
+ * that is registered stays reachable until the program ends, and ids are
+ * never reused. The registry therefore grows with the number of distinct
+ * corridors seen over the life of the program, not with the size of the
+ * current problem. A long-running program that reads many different venue
+ * files keeps the corridors of all of them (a few dozen bytes each), and a
+ * DenseTraffic holding traffic on a corridor registered late is sized to that
+ * corridor's id. Reading the traffic on a corridor (see
+ * DenseTraffic.getTraffic) does not register it.
+ * </p>
+ */
+public final class CorridorRegistry {
+
+    // the id of each registered corridor
+    private final static Map<Corridor, Integer> ids =
+            new ConcurrentHashMap<>();
+    // the registered corridors, indexed by id (only the first size are used)
+    private static volatile Corridor[] corridors = new Corridor[16];
+    // the number of registered corridors
+    private static volatile int size = 0;
+    // the canonical location with each name
+    private final static Map<String, Location> locations =
+            new ConcurrentHashMap<>();
+
+    /*
+     * invariant:
+     *
+     * 0 <= size <= corridors.length &&
+     *
+     * for each 0 <= i < size, ids.get(corridors[i]) == i &&
+     *
+     * ids.size() == size
+     */
+
+    /**
+     * This class only provides static methods.
+     */
+    private CorridorRegistry() {
+    }
+
+    /**
+     * Returns the id of the given corridor, registering it if it has not been
+     * registered before.
+     *
+     * @param corridor
+     *            the corridor whose id will be returned
+     * @return the id of the corridor
+     * @throws NullPointerException
+     *             if corridor is null
+     */
+    public static int idOf(Corridor corridor) {
+        Integer id = ids.get(corridor);
+        return id != null ? id : register(corridor);
+    }
+
+    /**
+     * Returns the id of the given corridor, or -1 if it has not been
+     * registered, without registering it.
+     *
+     * @require corridor != null
+     * @ensure Returns idOf(corridor) if an equal corridor has been registered,
+     *         and -1 otherwise.
+     */
+    static int find(Corridor corridor) {
+        Integer id = ids.get(corridor);
+        return id != null ? id : -1;
+    }
+
+    /**
+     * Returns the canonical location with the given name, creating it if
+     * there is none.
+     *
+     * @param name
+     *            the name of the location
+     * @return the canonical location with the given name
+     * @throws NullPointerException
+     *             if name is null
+     */
+    public static Location location(String name) {
+        if (name == null) {
+            throw new NullPointerException("Location name cannot be null.");
+        }
+        return locations.computeIfAbsent(name, Location::new);
+    }
+
+    /**
+     * Returns the canonical corridor with the given start location, end
+     * location and capacity, registering it if there is none.
+     *
+     * @param start
+     *            the name of the start location of the corridor
+     * @param end
+     *            the name of the end location of the corridor
+     * @param capacity
+     *            the maximum capacity of the corridor
+     * @return the canonical corridor with the given start, end and capacity
+     * @throws NullPointerException
+     *             if either start or end are null
+     * @throws IllegalArgumentException
+     *             if start is equal to end, or if capacity is less than or
+     *             equal to zero
+     */
+    public static Corridor corridor(String start, String end, int capacity) {
+        return intern(new Corridor(location(start), location(end), capacity));
+    }
+
+    /**
+     * Returns the canonical instance of the given corridor, registering the
+     * corridor if it has not been registered before.
+     *
+     * @param corridor
+     *            the corridor to intern
+     * @return the canonical corridor equal to the given corridor
+     * @throws NullPointerException
+     *             if corridor is null
+     */
+    public static Corridor intern(Corridor corridor) {
+        return getCorridor(corridor.getId());
+    }
+
+    /**
+     * Returns the corridor with the given id.
+     *
+     * @param id
+     *            the id of the corridor
+     * @return the corridor with the given id
+     * @throws IndexOutOfBoundsException
+     *             if no corridor has the given id
+     */
+    public static Corridor getCorridor(int id) {
+        if (id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException("No corridor has id " + id);
+        }
+        return corridors[id];
+    }
+
+    /**
+     * Returns the number of registered corridors (i.e. one more than the
+     * largest id given to a corridor).
+     *
+     * @return the number of registered corridors
+     */
+    public static int size() {
+        return size;
+    }
+
+    /**
+     * Registers the given corridor, if it has not been registered before, and
+     * returns its id.
+     *
+     * @require corridor != null
+     * @ensure Returns the id of the corridor, allocating the next id to it if
+     *         it has none.
+     */
+    private static synchronized int register(Corridor corridor) {
+        Integer id = ids.get(corridor);
+        if (id != null) {
+            // another thread registered the corridor first
+            return id;
+        }
+        if (size == corridors.length) {
+            corridors = Arrays.copyOf(corridors, 2 * size);
+        }
+        int result = size; // the id of the corridor
+        corridors[result] = corridor;
+        // publish the corridor before its id can be looked up
+        size = result + 1;
+        ids.put(corridor, result);
+        return result;
+    }
+
+}
@@ -0,0 +1,70 @@
+package planner;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * <p>
+ * A fork/join task that searches for a safe allocation of events to venues by
+ * searching the independent components of the problem (see Decomposition) in
+ * parallel.
+ * </p>
+ *
+ * <p>
+ * Each component is searched by its own ParallelAllocationSearch, and the
+ * allocations found for the components are combined into one allocation of
+ * all of the events. If some component has no safe allocation, then neither
+ * does the whole problem.
+ * </p>
+ */
+@SuppressWarnings("serial")
+class DecomposedAllocationSearch extends RecursiveTask<Map<Event, Venue>> {
+
+    // the components of the problem
+    private final Decomposition components;
+    // how the next event to allocate is chosen in each component
+    private final EventOrder eventOrder;
+    // how the venues for an event are ordered in each component
+    private final VenueOrder venueOrder;
+
+    /**
+     * Creates a new task that searches for a safe allocation of the given
+     * events to the given venues, one component at a time.
+     *
+     * @require events != null && venues != null && eventOrder != null &&
+     *          venueOrder != null && !events.contains(null) &&
+     *          !venues.contains(null) && events does not contain duplicate
+     *          events && venues does not contain duplicate venues.
+     */
+    DecomposedAllocationSearch(List<Event> events, List<Venue> venues,
+            EventOrder eventOrder, VenueOrder venueOrder) {
+        this.components = new Decomposition(events, venues);
+        this.eventOrder = eventOrder;
+        this.venueOrder = venueOrder;
+    }
+
+    /**
+     * Returns a safe allocation of all of the events, combined from a safe
+     * allocation of each component, or null if some component has none.
+     */
+    @Override
+    protected Map<Event, Venue> compute() {
+        List<ParallelAllocationSearch> subtasks = new ArrayList<>();
+        for (int i = 0; i < components.getComponentCount(); i++) {
+            subtasks.add(new ParallelAllocationSearch(components.getEvents(i),
+                    components.getVenues(i), eventOrder, venueOrder));
+        }
+        ForkJoinTask.invokeAll(subtasks);
+        Map<Event, Venue> result = new HashMap<>();
+        for (ParallelAllocationSearch subtask : subtasks) {
+            Map<Event, Venue> allocation = subtask.join();
+            if (allocation == null) {
+                return null;
+            }
+            result.putAll(allocation);
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,180 @@
+package planner;
+
+import java.util.*;
+
+/**
+ * <p>
+ * A split of the events and venues of an allocation problem into independent
+ * components.
+ * </p>
+ *
+ * <p>
+ * Two events interact if some venue can host both of them (they compete for
+ * it), or if some venue that can host one of them and some venue that can
+ * host the other put traffic on the same corridor (they share its capacity).
+ * The components are the connected components of this interaction: the events
+ * of a component, together with the venues that can host at least one of
+ * them. Venues that can't host any event are left out, as no allocation uses
+ * them.
+ * </p>
+ *
+ * <p>
+ * No venue or corridor is used by two components, so the safe allocations of
+ * the whole problem are exactly the unions of a safe allocation of each
+ * component, and each component can be searched on its own.
+ * </p>
+ */
+final class Decomposition {
+
+    // events[i] are the events of the i-th component, in the order given
+    private final List<List<Event>> events;
+    // venues[i] are the venues of the i-th component, in the order given
+    private final List<List<Venue>> venues;
+
+    /*
+     * invariant:
+     *
+     * events.size() == venues.size() && no component is empty of events &&
+     * each event given is in exactly one component, and each venue given that
+     * can host some event is in exactly one component
+     */
+
+    /**
+     * Splits the given events and venues into independent components.
+     *
+     * @require events != null && venues != null && !events.contains(null) &&
+     *          !venues.contains(null)
+     * @ensure The components are numbered in order of their first event.
+     */
+    Decomposition(List<Event> events, List<Venue> venues) {
+        this.events = new ArrayList<>();
+        this.venues = new ArrayList<>();
+
+        /*
+         * The nodes are the events (0 to E - 1) and the venues (E to E + V -
+         * 1). Each event is joined to the venues that can host it, and the
+         * venues that host some event are joined to each other venue that
+         * uses one of the same corridors.
+         */
+        int eventCount = events.size();
+        int venueCount = venues.size();
+        // the largest event that each venue can host (null if there is none)
+        Event[] largest = new Event[venueCount];
+        // the first venue node found to use each corridor
+        Map<Corridor, Integer> corridorNodes = new HashMap<>();
+        int[] parent = new int[eventCount + venueCount];
+        for (int n = 0; n < parent.length; n++) {
+            parent[n] = n;
+        }
+        for (int v = 0; v < venueCount; v++) {
+            Venue venue = venues.get(v);
+            for (int e = 0; e < eventCount; e++) {
+                Event event = events.get(e);
+                if (venue.canHost(event)) {
+                    union(parent, e, eventCount + v);
+                    if (largest[v] == null || event.getSize() > largest[v]
+                            .getSize()) {
+                        largest[v] = event;
+                    }
+                }
+            }
+            if (largest[v] != null) {
+                /*
+                 * The traffic of an event on a corridor can't decrease as the
+                 * event grows, so the corridors used by the largest event are
+                 * all of the corridors the venue uses for any of the events.
+                 */
+                for (Corridor corridor : venue.getTraffic(largest[v])
+                        .getCorridorsWithTraffic()) {
+                    Integer other = corridorNodes.putIfAbsent(corridor,
+                            eventCount + v);
+                    if (other != null) {
+                        union(parent, other, eventCount + v);
+                    }
+                }
+            }
+        }
+
+        // the component of each root node, numbered in order of first event
+        Map<Integer, Integer> components = new HashMap<>();
+        for (int e = 0; e < eventCount; e++) {
+            int root = find(parent, e);
+            Integer component = components.get(root);
+            if (component == null) {
+                component = this.events.size();
+                components.put(root, component);
+                this.events.add(new ArrayList<>());
+                this.venues.add(new ArrayList<>());
+            }
+            this.events.get(component).add(events.get(e));
+        }
+        for (int v = 0; v < venueCount; v++) {
+            if (largest[v] != null) {
+                int component = components.get(find(parent, eventCount + v));
+                this.venues.get(component).add(venues.get(v));
+            }
+        }
+    }
+
+    /**
+     * Returns the number of independent components.
+     *
+     * @ensure Returns the number of components (0 iff there are no events).
+     */
+    int getComponentCount() {
+        return events.size();
+    }
+
+    /**
+     * Returns the events of the i-th component, in the order given.
+     *
+     * @require 0 <= i < getComponentCount()
+     * @ensure Returns an unmodifiable, non-empty list of the events of
+     *         component i.
+     */
+    List<Event> getEvents(int i) {
+        return Collections.unmodifiableList(events.get(i));
+    }
+
+    /**
+     * Returns the venues of the i-th component, in the order given.
+     *
+     * @require 0 <= i < getComponentCount()
+     * @ensure Returns an unmodifiable list of the venues that can host some
+     *         event of component i.
+     */
+    List<Venue> getVenues(int i) {
+        return Collections.unmodifiableList(venues.get(i));
+    }
+
+    /**
+     * Joins the sets of nodes containing nodes a and b.
+     *
+     * @require 0 <= a, b < parent.length && parent describes a forest
+     * @ensure find(parent, a) == find(parent, b)
+     */
+    private static void union(int[] parent, int a, int b) {
+        int rootA = find(parent, a);
+        int rootB = find(parent, b);
+        if (rootA != rootB) {
+            // the smaller root is kept, so events tend to be roots
+            parent[Math.max(rootA, rootB)] = Math.min(rootA, rootB);
+        }
+    }
+
+    /**
+     * Returns the root of the set of nodes containing node n, halving the
+     * path to it.
+     *
+     * @require 0 <= n < parent.length && parent describes a forest
+     * @ensure Returns the root of node n.
+     */
+    private static int find(int[] parent, int n) {
+        while (parent[n] != n) {
+            parent[n] = parent[parent[n]];
+            n = parent[n];
+        }
+        return n;
+    }
+
+}
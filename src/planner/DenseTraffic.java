@@ -0,0 +1,226 @@
+package planner;
+
+import java.util.*;
+
+/**
+ * <p>
+ * A mutable record of the amount of traffic on traffic corridors, that stores
+ * the traffic on each corridor in an array indexed by the corridor's id in the
+ * CorridorRegistry (see Corridor.getId()). The array grows only as far as the
+ * largest id of a corridor that has been given traffic, and reading the
+ * traffic on a corridor that has never been registered doesn't register it.
+ * </p>
+ *
+ * <p>
+ * This class behaves exactly like Traffic, but looking up or updating the
+ * traffic on a corridor costs one array access (once the corridor's id is
+ * known), instead of a walk of a tree of corridors. It suits traffic records
+ * that cover many corridors, such as the total traffic of all of the events in
+ * a municipality.
+ * </p>
+ */
+public class DenseTraffic extends Traffic {
+
+    // loads[id] is the traffic on the corridor with that id (0 if id >=
+    // loads.length)
+    private int[] loads;
+    // the number of corridors with traffic
+    private int count;
+
+    /*
+     * invariant:
+     *
+     * loads != null && for each id, loads[id] >= 0 &&
+     *
+     * count is the number of ids with loads[id] > 0
+     */
+
+    /**
+     * Creates a new instance of the class in which every traffic corridor
+     * initially has no (i.e. zero) traffic.
+     */
+    public DenseTraffic() {
+        super();
+        loads = new int[0];
+        count = 0;
+    }
+
+    /**
+     * Creates a new instance of this class that initially has the same traffic
+     * as parameter initialTraffic (which is not modified, and is independent
+     * of the new instance).
+     *
+     * @param initialTraffic
+     *            the initial traffic for this instance of the class
+     * @throws NullPointerException
+     *             if initialTraffic is null
+     */
+    public DenseTraffic(Traffic initialTraffic) {
+        this();
+        addTraffic(initialTraffic);
+    }
+
+    @Override
+    public int getTraffic(Corridor corridor) {
+        if (corridor == null) {
+            throw new NullPointerException("corridor cannot be null");
+        }
+        // a corridor that was never registered has no traffic, and reading
+        // it doesn't register it
+        int id = corridor.findId();
+        return id >= 0 && id < loads.length ? loads[id] : 0;
+    }
+
+    @Override
+    public Set<Corridor> getCorridorsWithTraffic() {
+        Set<Corridor> result = new HashSet<>();
+        for (int id = 0; id < loads.length && result.size() < count; id++) {
+            if (loads[id] > 0) {
+                result.add(CorridorRegistry.getCorridor(id));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public boolean sameTraffic(Traffic other) {
+        if (!(other instanceof DenseTraffic)) {
+            return super.sameTraffic(other);
+        }
+        DenseTraffic dense = (DenseTraffic) other; // the traffic to compare
+        if (count != dense.count) {
+            return false;
+        }
+        for (int id = 0; id < Math.max(loads.length, dense.loads.length);
+                id++) {
+            if (load(id) != dense.load(id)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean isSafe() {
+        int found = 0; // the number of corridors with traffic checked
+        for (int id = 0; id < loads.length && found < count; id++) {
+            if (loads[id] > 0) {
+                found++;
+                if (loads[id] > CorridorRegistry.getCorridor(id)
+                        .getCapacity()) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void updateTraffic(Corridor corridor, int amount) {
+        if (corridor == null) {
+            throw new NullPointerException("Parameter corridor cannot be null");
+        }
+        int id = corridor.getId();
+        int currentAmount = load(id);
+        // check that the traffic would not become negative.
+        if (currentAmount + amount < 0) {
+            throw new InvalidTrafficException(
+                    "Cannot have a negative amount of traffic.");
+        }
+        set(id, currentAmount + amount);
+    }
+
+    @Override
+    public void addTraffic(Traffic extraTraffic) {
+        if (extraTraffic instanceof DenseTraffic) {
+            // the loads to add (copied in case extraTraffic == this)
+            int[] extra = ((DenseTraffic) extraTraffic).loads.clone();
+            for (int id = 0; id < extra.length; id++) {
+                if (extra[id] > 0) {
+                    set(id, load(id) + extra[id]);
+                }
+            }
+        } else {
+            for (Map.Entry<Corridor, Integer> entry : extraTraffic.asMap()
+                    .entrySet()) {
+                int id = entry.getKey().getId();
+                set(id, load(id) + entry.getValue());
+            }
+        }
+    }
+
+    @Override
+    int trafficHash() {
+        int result = 0; // the hash code under construction
+        int found = 0; // the number of corridors with traffic hashed
+        for (int id = 0; id < loads.length && found < count; id++) {
+            if (loads[id] > 0) {
+                found++;
+                result += CorridorRegistry.getCorridor(id).hashCode()
+                        ^ loads[id];
+            }
+        }
+        return result;
+    }
+
+    @Override
+    SortedMap<Corridor, Integer> asMap() {
+        SortedMap<Corridor, Integer> result = new TreeMap<>();
+        for (int id = 0; id < loads.length && result.size() < count; id++) {
+            if (loads[id] > 0) {
+                result.put(CorridorRegistry.getCorridor(id), loads[id]);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public boolean checkInvariant() {
+        if (loads == null) {
+            return false;
+        }
+        int found = 0; // the number of corridors with traffic
+        for (int load : loads) {
+            if (load < 0) {
+                return false;
+            }
+            if (load > 0) {
+                found++;
+            }
+        }
+        return found == count;
+    }
+
+    /**
+     * Returns the traffic on the corridor with the given id.
+     *
+     * @require id >= 0
+     * @ensure Returns loads[id], or 0 if id >= loads.length.
+     */
+    private int load(int id) {
+        return id < loads.length ? loads[id] : 0;
+    }
+
+    /**
+     * Sets the traffic on the corridor with the given id, growing loads if
+     * necessary.
+     *
+     * @require id >= 0 && amount >= 0
+     * @ensure load(id) == amount && count is updated to match.
+     */
+    private void set(int id, int amount) {
+        if (id >= loads.length) {
+            if (amount == 0) {
+                return;
+            }
+            loads = Arrays.copyOf(loads, Math.max(id + 1, 2 * loads.length));
+        }
+        if (loads[id] == 0 && amount > 0) {
+            count++;
+        } else if (loads[id] > 0 && amount == 0) {
+            count--;
+        }
+        loads[id] = amount;
+    }
+
+}
@@ -16,6 +16,8 @@ public class Event {
     private String name;
     // the number of people who are expected to attend the event
     private int size;
+    // the hash code of the event (computed once, since events are immutable)
+    private int hash;
 
     /* invariant: name != null && size > 0 */
 
@@ -42,6 +44,7 @@ public class Event {
         }
         this.name = name;
         this.size = size;
+        this.hash = computeHashCode();
     }
 
     /**
@@ -87,15 +90,30 @@ public class Event {
      */
     @Override
     public boolean equals(Object object) {
+        if (this == object) {
+            return true;
+        }
         if (!(object instanceof Event)) {
             return false;
         }
         Event other = (Event) object; // the event to compare
-        return name.equals(other.name) && (size == other.size);
+        // events with different hash codes can't be equal
+        return hash == other.hash && name.equals(other.name)
+                && (size == other.size);
     }
 
     @Override
     public int hashCode() {
+        return hash;
+    }
+
+    /**
+     * Returns the hash code of this event, computed from its name and size.
+     * 
+     * @require name != null
+     * @ensure Returns a hash code that depends only on name and size.
+     */
+    private int computeHashCode() {
         // We create a polynomial hash-code based on name and size
         final int prime = 31; // an odd base prime
         int result = 1; // the hash code under construction
@@ -0,0 +1,34 @@
+package planner;
+
+/**
+ * The order in which an allocation search chooses the next event to allocate.
+ */
+public enum EventOrder {
+
+    /**
+     * Events are allocated in the order in which they are given.
+     */
+    GIVEN,
+
+    /**
+     * Events are allocated in descending order of size, so that the events
+     * that the fewest venues can host are placed first. Events of equal size
+     * are allocated in the order in which they are given.
+     */
+    LARGEST_FIRST,
+
+    /**
+     * The next event allocated is always one with the fewest available venues
+     * that can still safely host it (i.e. the "minimum remaining values"
+     * heuristic). The order is recomputed at every step of the search.
+     */
+    FEWEST_VENUES_FIRST,
+
+    /**
+     * Events are allocated in descending order of the least total traffic
+     * that they generate at any venue that can host them, so that the events
+     * that put the most unavoidable load on the corridors are placed first.
+     */
+    HEAVIEST_TRAFFIC_FIRST
+
+}
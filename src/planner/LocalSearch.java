@@ -0,0 +1,419 @@
+package planner;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * <p>
+ * A local search for a safe allocation of events to venues, for instances
+ * that are too large to search exhaustively.
+ * </p>
+ *
+ * <p>
+ * The search keeps an allocation of every event to a distinct venue that can
+ * host it, starting from a matching (see Matching), and measures how far it is
+ * from being safe by its violation: the total traffic above capacity, summed
+ * over the corridors. Each move picks an event that uses an overloaded
+ * corridor, samples a few of the venues that can host it, and either moves the
+ * event to one of them that is free or swaps it with the event hosted there.
+ * The sampled move that reduces the violation most is made if it doesn't
+ * increase the violation, and otherwise with a probability that falls with
+ * the increase and with the temperature of the search (simulated annealing).
+ * The temperature cools with every move, and is raised again whenever the
+ * search stalls.
+ * </p>
+ *
+ * <p>
+ * The traffic on each corridor is kept as an array of loads, so the change in
+ * violation caused by a move is found by updating the loads of only the
+ * corridors used by the venues involved, and the overloaded corridors are
+ * kept in a list, so that each move takes time proportional to the number of
+ * corridors used by the venues involved, whatever the size of the instance.
+ * </p>
+ */
+final class LocalSearch {
+
+    // the number of venues sampled for the event moved at each step
+    private final static int SAMPLES = 8;
+    // the factor by which the temperature falls at each move
+    private final static double COOLING = 0.999;
+    // the lowest temperature of the search
+    private final static double MIN_TEMPERATURE = 0.01;
+    // the number of moves, per event, without improving on the best
+    // violation after which the search is reheated
+    private final static int STALL_MOVES = 50;
+    // the number of moves made between checks of the cancellation flag and
+    // the time limit
+    private final static int POLL_INTERVAL = 1 << 10;
+
+    // the events and venues of the search, indexed as in the table
+    private final TrafficTable table;
+    // hosts[e] lists the venues that can host event e
+    private final int[][] hosts;
+    // venuesOn[c] lists the venues that put traffic on corridor c for some
+    // event
+    private final int[][] venuesOn;
+    // the source of the random choices of the search
+    private final Random random;
+
+    // assignment[e] is the venue allocated event e
+    private final int[] assignment;
+    // occupant[v] is the event allocated venue v, or -1 if there is none
+    private final int[] occupant;
+    // load[c] is the traffic on corridor c
+    private final int[] load;
+    // the total traffic above capacity over all of the corridors
+    private int violation;
+    // the first overloadedCount entries are the overloaded corridors
+    private final int[] overloaded;
+    private int overloadedCount;
+    // position[c] is the index of corridor c in overloaded, or -1 if it is
+    // not overloaded
+    private final int[] position;
+
+    /*
+     * invariant:
+     *
+     * assignment[e] == v iff occupant[v] == e && assignment[e] is in hosts[e]
+     * for each event e && load is the traffic of the allocation && violation
+     * is the sum of max(0, load[c] - capacity of c) over the corridors c &&
+     * the overloaded corridors are exactly those with load[c] > capacity of
+     * c, and position[c] is their index in overloaded
+     */
+
+    /**
+     * Creates a new local search for safe allocations of the given events to
+     * the given venues, starting from the given matching.
+     *
+     * @require table != null && random != null && matching gives each event
+     *          of the table a distinct venue of the table that can host it
+     */
+    private LocalSearch(TrafficTable table, int[] matching, Random random) {
+        this.table = table;
+        this.random = random;
+        int eventCount = table.getEventCount();
+        int venueCount = table.getVenueCount();
+        int corridorCount = table.getCorridorCount();
+
+        hosts = new int[eventCount][];
+        // the venues that put traffic on each corridor, by corridor
+        List<Set<Integer>> using = new ArrayList<>();
+        for (int c = 0; c < corridorCount; c++) {
+            using.add(new LinkedHashSet<>());
+        }
+        for (int e = 0; e < eventCount; e++) {
+            int[] venues = new int[venueCount];
+            int count = 0; // the number of venues that can host event e
+            for (int v = 0; v < venueCount; v++) {
+                if (table.canHost(e, v)) {
+                    venues[count++] = v;
+                    int[] traffic = table.getUsage(e, v);
+                    for (int k = 0; k < traffic.length; k += 2) {
+                        using.get(traffic[k]).add(v);
+                    }
+                }
+            }
+            hosts[e] = Arrays.copyOf(venues, count);
+        }
+        venuesOn = new int[corridorCount][];
+        for (int c = 0; c < corridorCount; c++) {
+            venuesOn[c] = new int[using.get(c).size()];
+            int k = 0;
+            for (int v : using.get(c)) {
+                venuesOn[c][k++] = v;
+            }
+        }
+
+        assignment = matching.clone();
+        occupant = new int[venueCount];
+        Arrays.fill(occupant, -1);
+        load = new int[corridorCount];
+        overloaded = new int[corridorCount];
+        position = new int[corridorCount];
+        Arrays.fill(position, -1);
+        for (int e = 0; e < eventCount; e++) {
+            occupant[assignment[e]] = e;
+            shift(table.getUsage(e, assignment[e]), 1);
+        }
+    }
+
+    /**
+     * Returns a local search for safe allocations of the events of the given
+     * table to its venues, or null if the events can't even be given distinct
+     * venues that can host them (so there is no safe allocation).
+     *
+     * @require table != null && random != null
+     * @ensure Returns null iff no matching of the events to the venues that
+     *         can host them covers every event.
+     */
+    static LocalSearch create(TrafficTable table, Random random) {
+        long[][] hosts = new long[table.getEventCount()][];
+        for (int e = 0; e < hosts.length; e++) {
+            hosts[e] = Bits.create(table.getVenueCount());
+            for (int v = 0; v < table.getVenueCount(); v++) {
+                if (table.canHost(e, v)) {
+                    Bits.set(hosts[e], v);
+                }
+            }
+        }
+        int[] matching = Matching.cover(hosts, table.getVenueCount());
+        return matching == null ? null : new LocalSearch(table, matching,
+                random);
+    }
+
+    /**
+     * Moves events until the allocation is safe, the given flag is set or the
+     * given time has passed since the given start time, and returns the
+     * outcome.
+     *
+     * @require cancelled != null && startTime is a value of System.nanoTime()
+     *          && timeLimit >= 0 (Long.MAX_VALUE being no limit)
+     * @ensure Returns a result whose status is OPTIMAL and whose allocation is
+     *         safe if a safe allocation was reached, and otherwise a result
+     *         whose status is TIMEOUT, whose violation is the least violation
+     *         reached and whose allocation is a safe part of the allocation
+     *         with that violation.
+     */
+    AllocationResult run(AtomicBoolean cancelled, long startTime,
+            long timeLimit) {
+        int[] best = assignment.clone(); // the allocation with least violation
+        int bestViolation = violation;
+        double hot = Math.max(1.0, (double) violation / assignment.length);
+        double temperature = hot;
+        long sinceBest = 0; // the number of moves since best improved
+        long moves = 0; // the number of moves made
+        while (violation > 0) {
+            if (++moves % POLL_INTERVAL == 0 && (cancelled.get()
+                    || (timeLimit != Long.MAX_VALUE && System.nanoTime()
+                            - startTime >= timeLimit))) {
+                break;
+            }
+            step(temperature);
+            if (violation < bestViolation) {
+                bestViolation = violation;
+                System.arraycopy(assignment, 0, best, 0, best.length);
+                sinceBest = 0;
+            } else if (++sinceBest >= (long) STALL_MOVES * assignment.length) {
+                // reheat the search, starting again from the best allocation
+                restore(best);
+                temperature = hot;
+                sinceBest = 0;
+            }
+            temperature = Math.max(MIN_TEMPERATURE, temperature * COOLING);
+        }
+        if (violation == 0) {
+            return new AllocationResult(AllocationStatus.OPTIMAL, toAllocation(
+                    assignment), 0);
+        }
+        return new AllocationResult(AllocationStatus.TIMEOUT, toAllocation(
+                safePart(best)), bestViolation);
+    }
+
+    /**
+     * Makes one move of the search: picks an event on an overloaded corridor,
+     * finds the best of a few moves or swaps of that event, and makes it if
+     * the annealing rule accepts it.
+     *
+     * @require violation > 0 && temperature > 0
+     * @ensure The allocation is changed by at most one move or swap.
+     */
+    private void step(double temperature) {
+        int e = conflictedEvent();
+        int from = assignment[e];
+        int bestVenue = -1; // the venue of the best move sampled
+        int bestDelta = Integer.MAX_VALUE; // the change in violation it makes
+        for (int s = 0; s < SAMPLES; s++) {
+            int to = hosts[e][random.nextInt(hosts[e].length)];
+            int other = occupant[to]; // the event swapped with e (or -1)
+            if (to == from || (other >= 0 && !table.canHost(other, from))) {
+                continue;
+            }
+            int delta = swap(e, to);
+            swap(e, from); // undo the move
+            if (delta < bestDelta || (delta == bestDelta && random
+                    .nextBoolean())) {
+                bestDelta = delta;
+                bestVenue = to;
+            }
+        }
+        if (bestVenue >= 0 && (bestDelta <= 0 || random.nextDouble() < Math
+                .exp(-bestDelta / temperature))) {
+            swap(e, bestVenue);
+        }
+    }
+
+    /**
+     * Moves event e to venue to, swapping it with the event hosted there (if
+     * there is one), and returns the change in violation.
+     *
+     * @require venue to is in hosts[e] && if venue to hosts an event f, then
+     *          venue assignment[e] can host f
+     * @ensure Event e is at venue to, any event that was there is at the old
+     *         venue of event e, and returns the new violation less the old.
+     */
+    private int swap(int e, int to) {
+        int from = assignment[e];
+        int other = occupant[to];
+        int before = violation;
+        shift(table.getUsage(e, from), -1);
+        shift(table.getUsage(e, to), 1);
+        assignment[e] = to;
+        occupant[to] = e;
+        occupant[from] = other;
+        if (other >= 0) {
+            shift(table.getUsage(other, to), -1);
+            shift(table.getUsage(other, from), 1);
+            assignment[other] = from;
+        }
+        return violation - before;
+    }
+
+    /**
+     * Returns an event that puts traffic on a randomly chosen overloaded
+     * corridor.
+     *
+     * @require violation > 0
+     * @ensure Returns an event e whose usage at assignment[e] includes an
+     *         overloaded corridor.
+     */
+    private int conflictedEvent() {
+        int c = overloaded[random.nextInt(overloadedCount)];
+        int[] venues = venuesOn[c];
+        int start = random.nextInt(venues.length);
+        for (int k = 0; k < venues.length; k++) {
+            int e = occupant[venues[(start + k) % venues.length]];
+            if (e >= 0 && trafficOn(table.getUsage(e, assignment[e]), c) > 0) {
+                return e;
+            }
+        }
+        // unreachable: an overloaded corridor carries some event's traffic
+        throw new IllegalStateException("No event uses corridor " + c);
+    }
+
+    /**
+     * Adds sign times the given usage to the loads, updating the violation
+     * and the overloaded corridors.
+     *
+     * @require usage is a usage array of the table && sign is 1 or -1
+     * @ensure load[c] is changed by sign times the traffic on c, for each
+     *         corridor c in usage, and the invariant holds for the new loads.
+     */
+    private void shift(int[] usage, int sign) {
+        for (int k = 0; k < usage.length; k += 2) {
+            int c = usage[k]; // the corridor used
+            int capacity = table.getCapacity(c);
+            violation -= Math.max(0, load[c] - capacity);
+            load[c] += sign * usage[k + 1];
+            violation += Math.max(0, load[c] - capacity);
+            boolean over = load[c] > capacity;
+            if (over && position[c] < 0) {
+                position[c] = overloadedCount;
+                overloaded[overloadedCount++] = c;
+            } else if (!over && position[c] >= 0) {
+                int last = overloaded[--overloadedCount];
+                overloaded[position[c]] = last;
+                position[last] = position[c];
+                position[c] = -1;
+            }
+        }
+    }
+
+    /**
+     * Sets the allocation of the search to the given allocation.
+     *
+     * @require allocation gives each event a distinct venue that can host it
+     * @ensure assignment equals allocation, and the invariant holds.
+     */
+    private void restore(int[] allocation) {
+        for (int e = 0; e < assignment.length; e++) {
+            shift(table.getUsage(e, assignment[e]), -1);
+            occupant[assignment[e]] = -1;
+        }
+        for (int e = 0; e < assignment.length; e++) {
+            assignment[e] = allocation[e];
+            occupant[assignment[e]] = e;
+            shift(table.getUsage(e, assignment[e]), 1);
+        }
+    }
+
+    /**
+     * Returns a safe part of the given allocation, left once enough events
+     * are removed from each overloaded corridor, heaviest first.
+     *
+     * @require allocation gives each event a distinct venue that can host it
+     * @ensure Returns a new array result such that result[e] is allocation[e]
+     *         or -1 for each event e, and the allocation it describes is safe.
+     */
+    private int[] safePart(int[] allocation) {
+        int[] result = allocation.clone();
+        int[] loads = new int[load.length];
+        for (int e = 0; e < result.length; e++) {
+            add(loads, table.getUsage(e, result[e]), 1);
+        }
+        for (int c = 0; c < loads.length; c++) {
+            while (loads[c] > table.getCapacity(c)) {
+                // remove the event that puts the most traffic on corridor c
+                int heaviest = -1;
+                int most = 0; // the traffic it puts on c
+                for (int e = 0; e < result.length; e++) {
+                    if (result[e] >= 0) {
+                        int traffic = trafficOn(table.getUsage(e, result[e]),
+                                c);
+                        if (traffic > most) {
+                            heaviest = e;
+                            most = traffic;
+                        }
+                    }
+                }
+                add(loads, table.getUsage(heaviest, result[heaviest]), -1);
+                result[heaviest] = -1;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the given allocation as a map from events to venues.
+     *
+     * @require allocation[e] is a venue of the table, or -1, for each event e
+     * @ensure Returns a new map from each event e with allocation[e] >= 0 to
+     *         venue allocation[e].
+     */
+    private Map<Event, Venue> toAllocation(int[] allocation) {
+        Map<Event, Venue> result = new HashMap<>();
+        for (int e = 0; e < allocation.length; e++) {
+            if (allocation[e] >= 0) {
+                result.put(table.getEvent(e), table.getVenue(allocation[e]));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Adds sign times the given usage to the given loads.
+     *
+     * @require usage is a usage array of the table && loads.length is the
+     *          number of corridors of the table
+     */
+    private static void add(int[] loads, int[] usage, int sign) {
+        for (int k = 0; k < usage.length; k += 2) {
+            loads[usage[k]] += sign * usage[k + 1];
+        }
+    }
+
+    /**
+     * Returns the traffic that the given usage puts on corridor c.
+     *
+     * @require usage is a usage array of the table
+     * @ensure Returns the traffic on c in usage, or 0 if it doesn't use c.
+     */
+    private static int trafficOn(int[] usage, int c) {
+        for (int k = 0; k < usage.length; k += 2) {
+            if (usage[k] == c) {
+                return usage[k + 1];
+            }
+        }
+        return 0;
+    }
+
+}
@@ -0,0 +1,322 @@
+package planner;
+
+import java.util.*;
+
+/**
+ * <p>
+ * Bipartite matchings of events to the venues that can host them.
+ * </p>
+ *
+ * <p>
+ * A safe allocation gives every event a distinct venue that can host it, so
+ * it is a matching of the events into the venues that covers every event.
+ * Whether such a matching exists, and which (event, venue) pairs appear in at
+ * least one of them, can be decided in polynomial time, before any traffic is
+ * considered: a maximum matching is found with the Hopcroft-Karp algorithm,
+ * and the pairs that can be swapped into it are found from the alternating
+ * paths and cycles of that matching.
+ * </p>
+ */
+final class Matching {
+
+    // adjacent[e] lists the venues that can host event e, in ascending order
+    private final int[][] adjacent;
+    // the number of venues
+    private final int venueCount;
+    // venueOf[e] is the venue matched to event e, or -1 if there is none
+    private final int[] venueOf;
+    // eventAt[v] is the event matched to venue v, or -1 if there is none
+    private final int[] eventAt;
+
+    // layer[e] is the distance of event e from a free event in the last
+    // breadth-first search (NONE if it can't be reached)
+    private final int[] layer;
+    // position[e] is the next position in adjacent[e] to try when augmenting
+    private final int[] position;
+
+    // Tarjan's algorithm: the order in which venues are visited, the lowest
+    // order reachable from each, and the component of each (-1 until known)
+    private final int[] order, lowest, component;
+    // the venues visited by Tarjan's algorithm that are not yet in a
+    // component
+    private final Deque<Integer> stack;
+    // the number of venues visited, and of components found, so far
+    private int visited, components;
+
+    // the layer of events that can't be reached from a free event
+    private final static int NONE = Integer.MAX_VALUE;
+
+    /*
+     * invariant:
+     *
+     * venueOf[e] == v iff eventAt[v] == e, for each event e and venue v && if
+     * venueOf[e] == v then v is in adjacent[e]
+     */
+
+    /**
+     * Creates a new, empty matching of events to the venues that can host
+     * them.
+     *
+     * @require hosts != null && hosts[e] is a bit set of the venues 0 to
+     *          venueCount - 1 that can host event e
+     */
+    private Matching(long[][] hosts, int venueCount) {
+        this.venueCount = venueCount;
+        adjacent = new int[hosts.length][];
+        for (int e = 0; e < hosts.length; e++) {
+            adjacent[e] = new int[Bits.count(hosts[e])];
+            int k = 0;
+            for (int v = Bits.next(hosts[e], 0); v >= 0; v = Bits.next(
+                    hosts[e], v + 1)) {
+                adjacent[e][k++] = v;
+            }
+        }
+        venueOf = new int[hosts.length];
+        Arrays.fill(venueOf, -1);
+        eventAt = new int[venueCount];
+        Arrays.fill(eventAt, -1);
+        layer = new int[hosts.length];
+        position = new int[hosts.length];
+        order = new int[venueCount];
+        lowest = new int[venueCount];
+        component = new int[venueCount];
+        stack = new ArrayDeque<>();
+    }
+
+    /**
+     * <p>
+     * Returns the venues that can host each event in some matching that gives
+     * every event a distinct venue, or null if there is no such matching.
+     * </p>
+     *
+     * <p>
+     * Every (event, venue) pair of a safe allocation appears in such a
+     * matching, so restricting a search to the returned venues loses no safe
+     * allocation, and a null result shows that there is no safe allocation.
+     * </p>
+     *
+     * @require hosts != null && hosts[e] is a bit set of the venues 0 to
+     *          venueCount - 1 that can host event e
+     * @ensure Returns null if no matching of the events to the venues that can
+     *         host them covers every event, and otherwise returns new bit sets
+     *         result such that venue v is in result[e] iff event e is matched
+     *         to venue v in some matching that covers every event.
+     */
+    static long[][] restrict(long[][] hosts, int venueCount) {
+        Matching matching = new Matching(hosts, venueCount);
+        matching.maximise();
+        for (int e = 0; e < hosts.length; e++) {
+            if (matching.venueOf[e] < 0) {
+                return null;
+            }
+        }
+        return matching.matchablePairs();
+    }
+
+    /**
+     * Returns a matching that gives every event a distinct venue that can host
+     * it, or null if there is no such matching.
+     *
+     * @require hosts != null && hosts[e] is a bit set of the venues 0 to
+     *          venueCount - 1 that can host event e
+     * @ensure Returns null if no matching of the events to the venues that can
+     *         host them covers every event, and otherwise returns a new array
+     *         result such that result[e] is in hosts[e] for each event e, and
+     *         no two events have the same venue.
+     */
+    static int[] cover(long[][] hosts, int venueCount) {
+        Matching matching = new Matching(hosts, venueCount);
+        matching.maximise();
+        for (int e = 0; e < hosts.length; e++) {
+            if (matching.venueOf[e] < 0) {
+                return null;
+            }
+        }
+        return matching.venueOf.clone();
+    }
+
+    /**
+     * Makes this a maximum matching, using the Hopcroft-Karp algorithm.
+     *
+     * @ensure This matching has the largest possible number of events.
+     */
+    private void maximise() {
+        while (layerEvents()) {
+            Arrays.fill(position, 0);
+            for (int e = 0; e < adjacent.length; e++) {
+                if (venueOf[e] < 0) {
+                    augment(e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Computes the distance of each event from the nearest free event along
+     * alternating paths, returning true if some alternating path reaches a
+     * free venue, and false otherwise.
+     *
+     * @ensure layer[e] is the length (in events) of the shortest alternating
+     *         path to event e from a free event, or NONE if there is none, and
+     *         returns true iff there is an augmenting path.
+     */
+    private boolean layerEvents() {
+        int[] queue = new int[adjacent.length]; // the events to expand
+        int head = 0, tail = 0; // the bounds of the queue
+        for (int e = 0; e < adjacent.length; e++) {
+            if (venueOf[e] < 0) {
+                layer[e] = 0;
+                queue[tail++] = e;
+            } else {
+                layer[e] = NONE;
+            }
+        }
+        boolean found = false; // whether a free venue has been reached
+        while (head < tail) {
+            int e = queue[head++];
+            for (int v : adjacent[e]) {
+                int other = eventAt[v]; // the event matched to v
+                if (other < 0) {
+                    found = true;
+                } else if (layer[other] == NONE) {
+                    layer[other] = layer[e] + 1;
+                    queue[tail++] = other;
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Looks for an augmenting path from event e that follows the layers of the
+     * last breadth-first search, and flips the matching along it if one is
+     * found.
+     *
+     * @require position[e] is the next untried venue of event e in this phase
+     * @ensure Returns true iff an augmenting path was found from event e, in
+     *         which case event e is matched and the matching has grown by one.
+     */
+    private boolean augment(int e) {
+        for (; position[e] < adjacent[e].length; position[e]++) {
+            int v = adjacent[e][position[e]];
+            int other = eventAt[v]; // the event matched to v
+            if (other < 0 || (layer[other] == layer[e] + 1 && augment(
+                    other))) {
+                venueOf[e] = v;
+                eventAt[v] = e;
+                position[e]++;
+                return true;
+            }
+        }
+        // no augmenting path passes through e in this phase
+        layer[e] = NONE;
+        return false;
+    }
+
+    /**
+     * Returns the venues that can host each event in some matching that covers
+     * every event.
+     *
+     * @require this matching covers every event
+     * @ensure Returns new bit sets result such that venue v is in result[e]
+     *         iff event e is matched to venue v in some matching that covers
+     *         every event.
+     */
+    private long[][] matchablePairs() {
+        /*
+         * Moving event e to venue v displaces the event at v (if any), which
+         * must move to another venue that can host it, and so on. This ends
+         * either at a free venue or at the venue that e left. Call u -> w an
+         * edge between venues if the event at u can be hosted at w: then e
+         * can be moved to v iff v reaches a free venue, or v reaches (so is
+         * in the same strongly connected component as) the venue of e.
+         */
+        boolean[] freeing = freeingVenues();
+        Arrays.fill(component, -1);
+        Arrays.fill(order, -1);
+        visited = 0;
+        components = 0;
+        for (int v = 0; v < venueCount; v++) {
+            if (eventAt[v] >= 0 && !freeing[v] && order[v] < 0) {
+                connect(v, freeing);
+            }
+        }
+
+        long[][] result = new long[adjacent.length][];
+        for (int e = 0; e < adjacent.length; e++) {
+            result[e] = Bits.create(venueCount);
+            for (int v : adjacent[e]) {
+                if (v == venueOf[e] || freeing[v] || (component[v] >= 0
+                        && component[v] == component[venueOf[e]])) {
+                    Bits.set(result[e], v);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the venues from which a chain of displaced events ends at a free
+     * venue.
+     *
+     * @ensure Returns result such that result[v] iff venue v is free, or the
+     *         event matched to v can be hosted at a venue w with result[w].
+     */
+    private boolean[] freeingVenues() {
+        boolean[] result = new boolean[venueCount];
+        int[] queue = new int[venueCount]; // the venues to expand
+        int head = 0, tail = 0; // the bounds of the queue
+        for (int v = 0; v < venueCount; v++) {
+            if (eventAt[v] < 0) {
+                result[v] = true;
+                queue[tail++] = v;
+            }
+        }
+        while (head < tail) {
+            int w = queue[head++];
+            // the venues whose event can be hosted at w reach w
+            for (int e = 0; e < adjacent.length; e++) {
+                int v = venueOf[e];
+                if (!result[v] && Arrays.binarySearch(adjacent[e], w) >= 0) {
+                    result[v] = true;
+                    queue[tail++] = v;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Finds the strongly connected components reachable from venue v among
+     * the matched venues that aren't freeing, using Tarjan's algorithm.
+     *
+     * @require eventAt[v] >= 0 && !freeing[v] && order[v] < 0
+     * @ensure Every such venue reachable from v has been given a component.
+     */
+    private void connect(int v, boolean[] freeing) {
+        order[v] = visited;
+        lowest[v] = visited;
+        visited++;
+        stack.push(v);
+        for (int w : adjacent[eventAt[v]]) {
+            if (freeing[w]) {
+                continue;
+            }
+            if (order[w] < 0) {
+                connect(w, freeing);
+                lowest[v] = Math.min(lowest[v], lowest[w]);
+            } else if (component[w] < 0) {
+                lowest[v] = Math.min(lowest[v], order[w]);
+            }
+        }
+        if (lowest[v] == order[v]) {
+            int w;
+            do {
+                w = stack.pop();
+                component[w] = components;
+            } while (w != v);
+            components++;
+        }
+    }
+
+}
@@ -0,0 +1,175 @@
+package planner;
+
+import java.util.*;
+
+/**
+ * <p>
+ * A bounded cache of residual problems (see Residual) that are known to have
+ * no safe completion.
+ * </p>
+ *
+ * <p>
+ * A residual problem that has no safe completion still has none when more
+ * traffic is already on its corridors. The cache therefore keys each failure
+ * by its events, its venues and its corridor loads quantised to a few levels
+ * of each corridor's capacity, and records the exact loads with it: a later
+ * residual problem with the same key is known to fail if its loads are at
+ * least the recorded loads on every corridor.
+ * </p>
+ *
+ * <p>
+ * The cache holds as many failures as fit in a memory budget given when it is
+ * created, and evicts the least recently used failure when it is full.
+ * </p>
+ */
+final class NogoodCache {
+
+    // the number of levels that the load on a corridor is quantised to
+    private final static int LEVELS = 16;
+    // the estimated number of bytes used by a failure, beyond its arrays
+    private final static int ENTRY_OVERHEAD = 160;
+
+    // the capacity of each corridor, indexed by corridor id
+    private final int[] capacities;
+    // the most failures that the cache holds
+    private final int limit;
+    // the loads of each failure recorded, by key, least recently used first
+    private final LinkedHashMap<Residual, int[]> failures;
+    // the number of look-ups that found a failure
+    private long hits;
+
+    /*
+     * invariant:
+     *
+     * capacities != null && limit >= 0 && failures != null &&
+     *
+     * failures.size() <= limit && hits >= 0
+     */
+
+    /**
+     * Creates a new, empty cache of failures of searches of the events and
+     * venues of the given table, which uses about budget bytes of memory when
+     * full.
+     *
+     * @require table != null && budget >= 0
+     */
+    NogoodCache(TrafficTable table, long budget) {
+        capacities = new int[table.getCorridorCount()];
+        for (int c = 0; c < capacities.length; c++) {
+            capacities[c] = table.getCapacity(c);
+        }
+        // the estimated number of bytes used by each failure
+        long entrySize = ENTRY_OVERHEAD + 8L * (Bits.create(table
+                .getEventCount()).length + Bits.create(table.getVenueCount())
+                        .length) + 8L * capacities.length;
+        limit = (int) Math.min(Integer.MAX_VALUE, budget / entrySize);
+        failures = new LinkedHashMap<Residual, int[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(
+                    Map.Entry<Residual, int[]> eldest) {
+                return size() > limit;
+            }
+        };
+        hits = 0;
+    }
+
+    /**
+     * Returns true if the residual problem with the given events, venues and
+     * loads is known to have no safe completion, and false otherwise.
+     *
+     * @require events, venues and loads describe a residual problem of a
+     *          search of the events and venues of this cache's table
+     * @ensure Returns true only if the residual problem has no safe
+     *         completion. The arrays given are not modified or kept.
+     */
+    boolean fails(long[] events, long[] venues, int[] loads) {
+        if (limit == 0) {
+            return false;
+        }
+        int[] recorded = failures.get(new Residual(events, venues, quantise(
+                loads)));
+        if (recorded == null) {
+            return false;
+        }
+        for (int c = 0; c < loads.length; c++) {
+            if (loads[c] < recorded[c]) {
+                return false;
+            }
+        }
+        hits++;
+        return true;
+    }
+
+    /**
+     * Records that the residual problem with the given events, venues and
+     * loads has no safe completion, evicting the least recently used failure
+     * if the cache is full.
+     *
+     * @require events, venues and loads describe a residual problem of a
+     *          search of the events and venues of this cache's table, which
+     *          has no safe completion && the arrays are not modified afterwards
+     * @ensure The failure is recorded (replacing any failure with the same
+     *         key) unless the budget of the cache is zero.
+     */
+    void add(long[] events, long[] venues, int[] loads) {
+        if (limit > 0) {
+            failures.put(new Residual(events, venues, quantise(loads)), loads);
+        }
+    }
+
+    /**
+     * Forgets every failure recorded.
+     *
+     * @ensure size() == 0
+     */
+    void clear() {
+        failures.clear();
+    }
+
+    /**
+     * Returns the number of failures in the cache.
+     *
+     * @ensure Returns the number of failures recorded and not evicted.
+     */
+    int size() {
+        return failures.size();
+    }
+
+    /**
+     * Returns the most failures that the cache holds.
+     *
+     * @ensure Returns the number of failures at which the least recently used
+     *         one is evicted to make room for another.
+     */
+    int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Returns the number of times that a residual problem was found to fail
+     * by the cache.
+     *
+     * @ensure Returns the number of calls of fails() that returned true.
+     */
+    long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the given loads, quantised to LEVELS levels of the capacity of
+     * their corridors.
+     *
+     * @require loads.length == capacities.length && for each c, 0 <= loads[c]
+     *          <= capacities[c]
+     * @ensure Returns a new array whose c-th entry is the level, from 0 to
+     *         LEVELS - 1, of loads[c] within the capacity of corridor c.
+     */
+    private int[] quantise(int[] loads) {
+        int[] result = new int[loads.length];
+        for (int c = 0; c < loads.length; c++) {
+            result[c] = (int) ((long) loads[c] * LEVELS / (capacities[c] + 1));
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,141 @@
+package planner;
+
+import java.util.*;
+import java.util.function.ToDoubleBiFunction;
+
+/**
+ * <p>
+ * An immutable class representing a measure of how good an allocation of
+ * events to venues is, where lower values are better (see Allocator.optimise).
+ * </p>
+ *
+ * <p>
+ * An objective is either the peak utilisation of the corridors (the highest
+ * traffic on a corridor divided by its capacity), or the total of a cost for
+ * hosting each event at its venue, such as the capacity that the venue wastes
+ * or whether the venue is a large one.
+ * </p>
+ */
+public final class Objective {
+
+    /**
+     * The highest utilisation (traffic divided by capacity) of any corridor.
+     */
+    public final static Objective PEAK_UTILISATION = new Objective(null, true);
+
+    /**
+     * The total capacity of the venues used that is not taken up by the
+     * events they host.
+     */
+    public final static Objective WASTED_CAPACITY = new Objective((event,
+            venue) -> venue.getCapacity() - event.getSize(), true);
+
+    // the cost of hosting an event at a venue (or null for peak utilisation)
+    private final ToDoubleBiFunction<Event, Venue> cost;
+    // whether interchangeable events, and interchangeable venues, have the
+    // same cost (see Symmetry)
+    private final boolean symmetric;
+
+    /* invariant: cost == null implies symmetric */
+
+    /**
+     * Creates a new objective with the given cost of hosting an event at a
+     * venue, or the peak utilisation objective if cost is null.
+     *
+     * @require if symmetric, then swapping interchangeable events, or
+     *          interchangeable venues, doesn't change the cost
+     */
+    private Objective(ToDoubleBiFunction<Event, Venue> cost,
+            boolean symmetric) {
+        this.cost = cost;
+        this.symmetric = symmetric;
+    }
+
+    /**
+     * Returns the objective that counts the venues used with at least the
+     * given capacity.
+     *
+     * @param minCapacity
+     *            the least capacity of a venue that counts as large
+     * @return the number of large venues used
+     */
+    public static Objective largeVenues(int minCapacity) {
+        return new Objective((event, venue) -> venue
+                .getCapacity() >= minCapacity ? 1 : 0, true);
+    }
+
+    /**
+     * Returns the objective that totals the given cost of hosting each event
+     * at its venue.
+     *
+     * @param cost
+     *            the cost of hosting an event at a venue that can host it
+     * @return the total cost of an allocation
+     * @throws NullPointerException
+     *             if cost is null
+     */
+    public static Objective totalCost(ToDoubleBiFunction<Event, Venue> cost) {
+        if (cost == null) {
+            throw new NullPointerException("The cost cannot be null.");
+        }
+        return new Objective(cost, false);
+    }
+
+    /**
+     * Returns the value of this objective for the given allocation of events
+     * to venues.
+     *
+     * @param allocation
+     *            an allocation of events to venues that can host them
+     * @return the value of the objective for allocation (0 if it is empty)
+     * @throws NullPointerException
+     *             if allocation is null
+     */
+    public double valueOf(Map<Event, Venue> allocation) {
+        if (cost != null) {
+            double result = 0;
+            for (Map.Entry<Event, Venue> entry : allocation.entrySet()) {
+                result += cost.applyAsDouble(entry.getKey(), entry.getValue());
+            }
+            return result;
+        }
+        Traffic traffic = new Traffic();
+        for (Map.Entry<Event, Venue> entry : allocation.entrySet()) {
+            traffic.addTraffic(entry.getValue().getTraffic(entry.getKey()));
+        }
+        double result = 0;
+        for (Corridor corridor : traffic.getCorridorsWithTraffic()) {
+            result = Math.max(result, (double) traffic.getTraffic(corridor)
+                    / corridor.getCapacity());
+        }
+        return result;
+    }
+
+    /**
+     * Returns true if this is the peak utilisation objective, and false if it
+     * totals a cost for each event.
+     *
+     * @ensure Returns true iff this == PEAK_UTILISATION.
+     */
+    boolean isPeakUtilisation() {
+        return cost == null;
+    }
+
+    /**
+     * Returns the cost of hosting the given event at the given venue.
+     *
+     * @require !isPeakUtilisation() && venue.canHost(event)
+     */
+    double costOf(Event event, Venue venue) {
+        return cost.applyAsDouble(event, venue);
+    }
+
+    /**
+     * Returns true if allocations that differ only by swapping interchangeable
+     * events, or interchangeable venues, have the same value.
+     */
+    boolean isSymmetric() {
+        return symmetric;
+    }
+
+}
@@ -0,0 +1,132 @@
+package planner;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * <p>
+ * A fork/join task that searches for the first safe allocation of events to
+ * venues in parallel.
+ * </p>
+ *
+ * <p>
+ * Near the root of the search tree, the task forks one subtask for each safe
+ * placement of the next event, each subtask owning its own copy of the search
+ * state. Deeper in the tree (or when enough subtasks are already queued for
+ * idle workers to steal) the task searches its branch sequentially. All of
+ * the tasks of one search share a cancellation flag, which is set as soon as
+ * any task finds a safe allocation so that the others stop.
+ * </p>
+ */
+@SuppressWarnings("serial")
+class ParallelAllocationSearch extends RecursiveTask<Map<Event, Venue>> {
+
+    // branches are always forked at depths less than this
+    private final static int MIN_SPLIT_DEPTH = 2;
+    // branches with at most this many events left are searched sequentially
+    private final static int SEQUENTIAL_EVENTS = 3;
+    // branches are only forked when fewer tasks than this are queued
+    private final static int MAX_SURPLUS_TASKS = 2;
+
+    // the state of the branch of the search explored by this task
+    private final AllocationSearch search;
+    // set once any task of the search has found a safe allocation
+    private final AtomicBoolean found;
+
+    /**
+     * Creates a new task that searches for the first safe allocation of events
+     * to venues.
+     *
+     * @require events != null && venues != null && eventOrder != null &&
+     *          venueOrder != null && !events.contains(null) &&
+     *          !venues.contains(null) && events does not contain duplicate
+     *          events && venues does not contain duplicate venues.
+     */
+    ParallelAllocationSearch(List<Event> events, List<Venue> venues,
+            EventOrder eventOrder, VenueOrder venueOrder) {
+        this(new AllocationSearch(events, venues, eventOrder, venueOrder),
+                new AtomicBoolean(false));
+    }
+
+    /**
+     * Creates a new task that explores the branch of the search described by
+     * the given search state.
+     *
+     * @require search != null && found != null && search is not shared with
+     *          any other task
+     */
+    private ParallelAllocationSearch(AllocationSearch search,
+            AtomicBoolean found) {
+        this.search = search;
+        this.found = found;
+        search.setCancellation(found);
+    }
+
+    /**
+     * Returns a safe allocation that extends the partial allocation of this
+     * task's branch, or null if there is none or another task found a safe
+     * allocation first.
+     */
+    @Override
+    protected Map<Event, Venue> compute() {
+        if (!shouldSplit()) {
+            return finish(search.firstAllocation());
+        }
+        // the event to be allocated next
+        int next = search.nextEvent();
+        if (next < 0) {
+            return finish(search.firstAllocation());
+        }
+        List<ParallelAllocationSearch> subtasks = new ArrayList<>();
+        for (int i : search.candidateVenues(next)) {
+            AllocationSearch branch = search.branch(next, i);
+            if (branch != null) {
+                subtasks.add(new ParallelAllocationSearch(branch, found));
+            }
+        }
+        // fork every subtask, then wait for them in order of preference
+        for (int i = subtasks.size() - 1; i >= 0; i--) {
+            subtasks.get(i).fork();
+        }
+        Map<Event, Venue> result = null; // the first allocation found
+        for (ParallelAllocationSearch subtask : subtasks) {
+            Map<Event, Venue> allocation = subtask.join();
+            if (result == null) {
+                result = allocation;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns true if this task should fork subtasks for the branches of its
+     * next event, and false if it should search its branch sequentially.
+     *
+     * @ensure Returns true iff there are more than SEQUENTIAL_EVENTS events
+     *         left to allocate and either this task is near the root of the
+     *         search or there are few queued tasks for idle workers to steal.
+     */
+    private boolean shouldSplit() {
+        if (search.getRemaining() <= SEQUENTIAL_EVENTS) {
+            return false;
+        }
+        return search.getDepth() < MIN_SPLIT_DEPTH || ForkJoinTask
+                .getSurplusQueuedTaskCount() < MAX_SURPLUS_TASKS;
+    }
+
+    /**
+     * Records that a safe allocation has been found (if allocation is not
+     * null), cancelling the rest of the search, and returns allocation.
+     *
+     * @ensure Sets found if allocation != null, and returns allocation.
+     */
+    private Map<Event, Venue> finish(Map<Event, Venue> allocation) {
+        if (allocation != null) {
+            found.set(true);
+        }
+        return allocation;
+    }
+
+}
@@ -0,0 +1,261 @@
+package planner;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * <p>
+ * A portfolio of strategies for finding a safe allocation of events to
+ * venues, which are raced against each other.
+ * </p>
+ * 
+ * <p>
+ * Different instances favour different strategies (e.g. an exhaustive search
+ * with some order of events and venues, or a local search), and which one is
+ * fastest can't be told in advance. Each call to allocate runs every strategy
+ * of the portfolio at once on the portfolio's executor, returns the first
+ * definitive answer (a safe allocation, or a proof that there is none), and
+ * cancels the other strategies. The number of races that each strategy has
+ * won is kept, so that the portfolio can be tuned.
+ * </p>
+ * 
+ * <p>
+ * The executor bounds the number of strategies that run at once: a fixed
+ * thread pool with one thread per strategy runs them all together, and a
+ * smaller one queues some of them (a virtual thread per task executor may be
+ * used where the platform provides one).
+ * </p>
+ */
+public class Portfolio {
+
+    // the executor that runs the strategies
+    private final ExecutorService executor;
+    // the strategies of the portfolio, by name, in the order they were added
+    private final Map<String, AllocationStrategy> strategies;
+    // the number of races won by each strategy, by name
+    private final Map<String, Long> wins;
+
+    /*
+     * invariant: executor != null && strategies and wins have the same keys
+     * && no key or value is null
+     */
+
+    /**
+     * Creates a new portfolio, with no strategies, that runs its strategies
+     * on the given executor.
+     * 
+     * @param executor
+     *            the executor that runs the strategies
+     * @throws NullPointerException
+     *             if executor is null
+     */
+    public Portfolio(ExecutorService executor) {
+        if (executor == null) {
+            throw new NullPointerException("The executor cannot be null.");
+        }
+        this.executor = executor;
+        strategies = new LinkedHashMap<>();
+        wins = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Returns a new portfolio of the standard strategies, run on the given
+     * executor: an exhaustive search that allocates the event with the fewest
+     * venues first, one that allocates the largest events first at the
+     * tightest venues, a local search and a SAT solver.
+     * 
+     * @param executor
+     *            the executor that runs the strategies
+     * @return a portfolio of the standard strategies
+     * @throws NullPointerException
+     *             if executor is null
+     */
+    public static Portfolio standard(ExecutorService executor) {
+        Portfolio result = new Portfolio(executor);
+        result.addStrategy("fewest venues first", (events, venues, timeLimit,
+                cancelled) -> Allocator.allocate(events, venues,
+                        EventOrder.FEWEST_VENUES_FIRST,
+                        VenueOrder.LEAST_LOADED_FIRST, timeLimit, cancelled));
+        result.addStrategy("largest first", (events, venues, timeLimit,
+                cancelled) -> Allocator.allocate(events, venues,
+                        EventOrder.LARGEST_FIRST, VenueOrder.TIGHTEST_FIT_FIRST,
+                        timeLimit, cancelled));
+        result.addStrategy("local search", (events, venues, timeLimit,
+                cancelled) -> Allocator.allocateByLocalSearch(events, venues,
+                        timeLimit, cancelled, 0));
+        result.addStrategy("SAT", Allocator::allocateBySat);
+        return result;
+    }
+
+    /**
+     * Adds the given strategy to the portfolio under the given name.
+     * 
+     * @param name
+     *            the name of the strategy, which its wins are kept under
+     * @param strategy
+     *            the strategy to add
+     * @throws NullPointerException
+     *             if name or strategy is null
+     * @throws IllegalArgumentException
+     *             if the portfolio already has a strategy with the given name
+     */
+    public synchronized void addStrategy(String name,
+            AllocationStrategy strategy) {
+        if (name == null || strategy == null) {
+            throw new NullPointerException(
+                    "The name and the strategy cannot be null.");
+        }
+        if (strategies.containsKey(name)) {
+            throw new IllegalArgumentException("There is already a strategy "
+                    + "named " + name + ".");
+        }
+        strategies.put(name, strategy);
+        wins.put(name, 0L);
+    }
+
+    /**
+     * <p>
+     * Races the strategies of the portfolio to find a safe allocation of
+     * events to venues, giving each of them the given time limit, and returns
+     * the first definitive answer.
+     * </p>
+     * 
+     * <p>
+     * As soon as one strategy returns a result whose status is OPTIMAL,
+     * FEASIBLE or INFEASIBLE, the other strategies are cancelled (those that
+     * haven't started never start) and that result is returned, and the
+     * strategy is counted as having won the race. If no strategy gives a
+     * definitive answer, the TIMEOUT result with the largest allocation is
+     * returned, and no strategy wins. A strategy that throws an exception
+     * drops out of the race.
+     * </p>
+     * 
+     * @param events
+     *            the events to allocate
+     * @param venues
+     *            the venues that they may be allocated to
+     * @param timeLimit
+     *            how long each strategy may take
+     * @return the first definitive result, or the best result if there is
+     *         none
+     * @throws NullPointerException
+     *             if events, venues or timeLimit is null, or contain null
+     * @throws IllegalArgumentException
+     *             if timeLimit is negative, or events or venues contain
+     *             duplicates
+     * @throws IllegalStateException
+     *             if the portfolio has no strategies, or every strategy
+     *             throws an exception (which is then the cause)
+     * @throws RejectedExecutionException
+     *             if the executor does not accept the strategies
+     */
+    public AllocationResult allocate(List<Event> events, List<Venue> venues,
+            Duration timeLimit) {
+        checkInput(events, venues, timeLimit);
+        Map<String, AllocationStrategy> racers;
+        synchronized (this) {
+            racers = new LinkedHashMap<>(strategies);
+        }
+        if (racers.isEmpty()) {
+            throw new IllegalStateException("The portfolio has no strategies.");
+        }
+        List<Event> eventList = Collections.unmodifiableList(new ArrayList<>(
+                events));
+        List<Venue> venueList = Collections.unmodifiableList(new ArrayList<>(
+                venues));
+
+        AtomicBoolean cancelled = new AtomicBoolean(false);
+        CompletionService<AllocationResult> race =
+                new ExecutorCompletionService<>(executor);
+        // the strategy run by each task
+        Map<Future<AllocationResult>, String> names = new HashMap<>();
+        try {
+            for (Map.Entry<String, AllocationStrategy> racer : racers
+                    .entrySet()) {
+                AllocationStrategy strategy = racer.getValue();
+                names.put(race.submit(() -> strategy.solve(eventList,
+                        venueList, timeLimit, cancelled)), racer.getKey());
+            }
+            AllocationResult best = null; // the best TIMEOUT result so far
+            Throwable failure = null; // the first exception thrown, if any
+            for (int finished = 0; finished < names.size(); finished++) {
+                Future<AllocationResult> future = race.take();
+                AllocationResult result;
+                try {
+                    result = future.get();
+                } catch (ExecutionException e) {
+                    failure = failure == null ? e.getCause() : failure;
+                    continue;
+                }
+                if (result.getStatus() != AllocationStatus.TIMEOUT) {
+                    wins.merge(names.get(future), 1L, Long::sum);
+                    return result;
+                }
+                if (best == null || result.getAllocation().size() > best
+                        .getAllocation().size()) {
+                    best = result;
+                }
+            }
+            if (best == null) {
+                throw new IllegalStateException("Every strategy failed.",
+                        failure);
+            }
+            return best;
+        } catch (InterruptedException e) {
+            // give up the race, keeping the interrupt for the caller
+            Thread.currentThread().interrupt();
+            return new AllocationResult(AllocationStatus.TIMEOUT,
+                    new HashMap<>());
+        } finally {
+            cancelled.set(true);
+            for (Future<AllocationResult> future : names.keySet()) {
+                future.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of races that each strategy of the portfolio has
+     * won.
+     * 
+     * @return an unmodifiable map from the name of each strategy, in the order
+     *         the strategies were added, to the number of races it has won
+     */
+    public synchronized Map<String, Long> getWins() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (String name : strategies.keySet()) {
+            result.put(name, wins.get(name));
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * Checks that the given input of allocate is valid.
+     * 
+     * @throws NullPointerException
+     *             if events, venues or timeLimit is null, or contain null
+     * @throws IllegalArgumentException
+     *             if timeLimit is negative, or events or venues contain
+     *             duplicates
+     */
+    private static void checkInput(List<Event> events, List<Venue> venues,
+            Duration timeLimit) {
+        if (events == null || venues == null || timeLimit == null
+                || events.contains(null) || venues.contains(null)) {
+            throw new NullPointerException(
+                    "The events, venues and time limit cannot be null.");
+        }
+        if (timeLimit.isNegative()) {
+            throw new IllegalArgumentException(
+                    "The time limit cannot be negative.");
+        }
+        if (new HashSet<>(events).size() != events.size()
+                || new HashSet<>(venues).size() != venues.size()) {
+            throw new IllegalArgumentException(
+                    "The events and venues cannot contain duplicates.");
+        }
+    }
+
+}
@@ -0,0 +1,71 @@
+package planner;
+
+import java.util.*;
+
+/**
+ * <p>
+ * An immutable key describing the residual problem at a node of an allocation
+ * search: the events that are still to be allocated, the venues that are
+ * still available to them, and the traffic already on the corridors that they
+ * could use.
+ * </p>
+ *
+ * <p>
+ * Two nodes with equal residual problems have exactly the same safe
+ * completions, however they were reached, so the result of searching one can
+ * be reused for the other.
+ * </p>
+ */
+final class Residual {
+
+    // the set of events still to be allocated
+    private final long[] events;
+    // the set of venues still available to those events
+    private final long[] venues;
+    // the traffic on each corridor (0 for corridors the events can't use)
+    private final int[] loads;
+    // the hash code of the key
+    private final int hash;
+
+    /**
+     * Creates a new key for the residual problem described by the given
+     * events, venues and loads. The arrays are owned by the new key and must
+     * not be modified afterwards.
+     *
+     * @require events != null && venues != null && loads != null
+     */
+    Residual(long[] events, long[] venues, int[] loads) {
+        this.events = events;
+        this.venues = venues;
+        this.loads = loads;
+        int result = Arrays.hashCode(events); // the hash code under
+                                              // construction
+        result = 31 * result + Arrays.hashCode(venues);
+        result = 31 * result + Arrays.hashCode(loads);
+        this.hash = result;
+    }
+
+    /**
+     * Returns true if and only if the given object is a Residual describing
+     * the same events, venues and loads as this one.
+     */
+    @Override
+    public boolean equals(Object object) {
+        if (this == object) {
+            return true;
+        }
+        if (!(object instanceof Residual)) {
+            return false;
+        }
+        Residual other = (Residual) object; // the key to compare
+        return hash == other.hash && Arrays.equals(events, other.events)
+                && Arrays.equals(venues, other.venues) && Arrays.equals(loads,
+                        other.loads);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+}
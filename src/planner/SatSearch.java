@@ -0,0 +1,182 @@
+package planner;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * <p>
+ * A search for a safe allocation of events to venues that encodes the
+ * instance as Boolean constraints and solves them with a SatSolver.
+ * </p>
+ *
+ * <p>
+ * There is a variable for each (event, venue) pair that is in some matching
+ * of every event to a distinct venue that can host it (see Matching.restrict),
+ * which is true iff the event is allocated the venue. Each event is allocated
+ * exactly one venue (a clause over its variables, and an at-most-one
+ * constraint), each venue hosts at most one event (an at-most-one
+ * constraint), and the traffic on each corridor is at most its capacity (a
+ * linear constraint whose weights are the traffic that each pair puts on the
+ * corridor). Corridors that can't be overloaded, even by every pair at once,
+ * need no constraint.
+ * </p>
+ *
+ * <p>
+ * The variables of events with fewer venues start with a higher activity, so
+ * that, like the exhaustive search, the solver first decides the events with
+ * the fewest venues, and each variable is first decided true.
+ * </p>
+ */
+final class SatSearch {
+
+    // the events and venues of the search, indexed as in the table
+    private final TrafficTable table;
+    // the solver of the constraints
+    private final SatSolver solver;
+    // eventOf[x] and venueOf[x] are the event and venue of variable x, for
+    // the variables of the pairs
+    private final int[] eventOf, venueOf;
+
+    /*
+     * invariant:
+     *
+     * eventOf.length == venueOf.length && the variables 0 to eventOf.length -
+     * 1 of solver are the pairs (eventOf[x], venueOf[x]), and the constraints
+     * of solver are those described above
+     */
+
+    /**
+     * Creates a new search, encoding the given table into constraints with
+     * the variables of the given pairs.
+     *
+     * @require table != null && hosts[e] is the set of venues that event e may
+     *          be allocated, for each event e of table
+     */
+    private SatSearch(TrafficTable table, long[][] hosts) {
+        this.table = table;
+        solver = new SatSolver();
+        int pairCount = 0;
+        for (long[] venues : hosts) {
+            pairCount += Bits.count(venues);
+        }
+        eventOf = new int[pairCount];
+        venueOf = new int[pairCount];
+        // the variables of the pairs of each venue
+        List<List<Integer>> ofVenue = new ArrayList<>();
+        for (int v = 0; v < table.getVenueCount(); v++) {
+            ofVenue.add(new ArrayList<>());
+        }
+        // the variables and weights of the pairs on each corridor
+        List<List<Integer>> onCorridor = new ArrayList<>();
+        List<List<Integer>> weights = new ArrayList<>();
+        for (int c = 0; c < table.getCorridorCount(); c++) {
+            onCorridor.add(new ArrayList<>());
+            weights.add(new ArrayList<>());
+        }
+        long[] totals = new long[table.getCorridorCount()];
+        // the variables of the pairs of each event
+        int[][] ofEvent = new int[hosts.length][];
+        for (int e = 0; e < hosts.length; e++) {
+            int count = Bits.count(hosts[e]);
+            ofEvent[e] = new int[count];
+            int i = 0;
+            for (int v = Bits.next(hosts[e], 0); v >= 0; v = Bits.next(
+                    hosts[e], v + 1)) {
+                int x = solver.newVariable(true, 1.0 / count);
+                eventOf[x] = e;
+                venueOf[x] = v;
+                ofEvent[e][i++] = x;
+                ofVenue.get(v).add(x);
+                int[] traffic = table.getUsage(e, v);
+                for (int k = 0; k < traffic.length; k += 2) {
+                    onCorridor.get(traffic[k]).add(x);
+                    weights.get(traffic[k]).add(traffic[k + 1]);
+                    totals[traffic[k]] += traffic[k + 1];
+                }
+            }
+        }
+        for (int[] variables : ofEvent) {
+            int[] literals = new int[variables.length];
+            for (int i = 0; i < literals.length; i++) {
+                literals[i] = SatSolver.literal(variables[i], true);
+            }
+            solver.addClause(literals);
+            solver.addAtMostOne(variables);
+        }
+        for (List<Integer> variables : ofVenue) {
+            solver.addAtMostOne(toArray(variables));
+        }
+        for (int c = 0; c < table.getCorridorCount(); c++) {
+            if (totals[c] > table.getCapacity(c)) {
+                solver.addLinear(toArray(onCorridor.get(c)), toArray(weights
+                        .get(c)), table.getCapacity(c));
+            }
+        }
+    }
+
+    /**
+     * Returns a new search for a safe allocation of the events of the given
+     * table to its venues, or null if the events can't even be allocated
+     * distinct venues that can host them.
+     *
+     * @require table != null
+     * @ensure Returns null iff no matching of every event to a distinct venue
+     *         that can host it exists, and otherwise a new search of table.
+     */
+    static SatSearch create(TrafficTable table) {
+        long[][] hosts = new long[table.getEventCount()][];
+        for (int e = 0; e < hosts.length; e++) {
+            hosts[e] = Bits.create(table.getVenueCount());
+            for (int v = 0; v < table.getVenueCount(); v++) {
+                if (table.canHost(e, v)) {
+                    Bits.set(hosts[e], v);
+                }
+            }
+        }
+        long[][] matchable = Matching.restrict(hosts, table.getVenueCount());
+        return matchable == null ? null : new SatSearch(table, matchable);
+    }
+
+    /**
+     * Solves the constraints until a safe allocation is found, there is shown
+     * to be none, the given flag is set or the given time has passed since
+     * the given start time, and returns the outcome.
+     *
+     * @require cancelled != null && startTime is a value of System.nanoTime()
+     *          && timeLimit >= 0 (Long.MAX_VALUE being no limit) && run hasn't
+     *          been called before
+     * @ensure Returns a result whose status is OPTIMAL and whose allocation is
+     *         safe if a safe allocation was found, INFEASIBLE if there is none,
+     *         and otherwise TIMEOUT, with a safe partial allocation.
+     */
+    AllocationResult run(AtomicBoolean cancelled, long startTime,
+            long timeLimit) {
+        Boolean solved = solver.solve(cancelled, startTime, timeLimit);
+        if (solved == Boolean.FALSE) {
+            return new AllocationResult(AllocationStatus.INFEASIBLE, null);
+        }
+        Map<Event, Venue> allocation = new HashMap<>();
+        for (int x = 0; x < eventOf.length; x++) {
+            if (solver.isTrue(x)) {
+                allocation.put(table.getEvent(eventOf[x]), table.getVenue(
+                        venueOf[x]));
+            }
+        }
+        return new AllocationResult(solved == null ? AllocationStatus.TIMEOUT
+                : AllocationStatus.OPTIMAL, allocation);
+    }
+
+    /**
+     * Returns the given integers as an array.
+     *
+     * @require list != null && !list.contains(null)
+     */
+    private static int[] toArray(List<Integer> list) {
+        int[] result = new int[list.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = list.get(i);
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,1029 @@
+package planner;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * <p>
+ * A conflict-driven clause learning (CDCL) solver for clauses and linear
+ * constraints over Boolean variables.
+ * </p>
+ *
+ * <p>
+ * Variables are numbered from 0, and the literals of variable x are 2x (x is
+ * true) and 2x + 1 (x is false). A linear constraint bounds the total weight
+ * of the variables that are true among some variables, such as the traffic
+ * that the (event, venue) pairs put on a corridor. Linear constraints are
+ * propagated directly rather than being encoded into clauses: once the
+ * variables that are true leave less room under the limit than the weight of
+ * another variable, that variable is set false. The reason given for it is a
+ * clause over the heaviest of the true variables, built only when a
+ * conflict is analysed, so that the conflicts that involve a linear
+ * constraint are learnt like any others. At-most-one constraints are encoded
+ * into clauses if they are small, and are otherwise linear constraints with
+ * unit weights (see addAtMostOne).
+ * </p>
+ *
+ * <p>
+ * Clauses are propagated with two watched literals. The search decides on the
+ * unassigned variable with the highest activity (VSIDS), giving it the value
+ * it last had (phase saving), learns the first unique implication point
+ * clause of each conflict and jumps back to the level at which that clause
+ * implies a literal. It restarts after numbers of conflicts that follow the
+ * Luby sequence, and from time to time deletes half of the learnt clauses,
+ * keeping those whose literals span the fewest decision levels (LBD).
+ * </p>
+ */
+final class SatSolver {
+
+    // the value of a literal that is true, false or unassigned
+    private final static byte TRUE = 1, FALSE = -1, UNASSIGNED = 0;
+    // the number of conflicts in a restart interval of Luby length 1
+    private final static int RESTART_BASE = 100;
+    // the factors by which the variable and clause activities decay at each
+    // conflict
+    private final static double VARIABLE_DECAY = 0.95, CLAUSE_DECAY = 0.999;
+    // the activity above which all of the activities are scaled down
+    private final static double RESCALE_LIMIT = 1e100;
+    // at-most-one constraints on at most this many literals are encoded as
+    // a clause for each pair of literals
+    private final static int PAIRWISE_LIMIT = 6;
+    // the number of learnt clauses kept before the first deletion, and how
+    // many more are kept after each deletion
+    private final static int FIRST_REDUCTION = 2000;
+    private final static int REDUCTION_INCREMENT = 300;
+    // learnt clauses whose literals span at most this many decision levels
+    // are never deleted
+    private final static int GLUE_LBD = 2;
+    // the number of decisions made between checks of the cancellation flag
+    // and the time limit
+    private final static int POLL_INTERVAL = 1 << 8;
+
+    /**
+     * A clause of the solver, either one of the constraints or a learnt
+     * clause.
+     */
+    private final static class Clause {
+
+        // the literals of the clause: the first two are watched, and the
+        // first is the literal implied by the clause if it is a reason
+        private final int[] literals;
+        // whether the clause was learnt from a conflict
+        private final boolean learnt;
+        // how often the clause took part in recent conflicts
+        private double activity;
+        // the number of decision levels spanned by the literals when learnt
+        private int lbd;
+        // whether the clause was deleted (it is left in the watch lists
+        // until they are next visited)
+        private boolean deleted;
+
+        /**
+         * Creates a new clause with the given literals.
+         *
+         * @require literals != null
+         */
+        private Clause(int[] literals, boolean learnt) {
+            this.literals = literals;
+            this.learnt = learnt;
+        }
+
+    }
+
+    // the number of variables
+    private int variableCount;
+    // values[l] is the value of literal l
+    private byte[] values;
+    // level[x] is the decision level at which variable x was assigned
+    private int[] level;
+    // reason[x] is the clause that implied the value of variable x, or null
+    // if it was decided, assigned at level 0 by a unit clause or implied by a
+    // linear constraint
+    private Clause[] reason;
+    // reasonConstraint[x] is the linear constraint that implied variable x
+    // is false, or -1 if none did, reasonTerm[x] the term of x in it and
+    // reasonDepth[x] the number of its variables counted when it did
+    private int[] reasonConstraint, reasonTerm, reasonDepth;
+    // activity[x] is how often variable x took part in recent conflicts
+    private double[] activity;
+    // phase[x] is the value that variable x is given when it is decided
+    private boolean[] phase;
+    // whether each variable is marked during the analysis of a conflict
+    private boolean[] seen;
+    // whether the weight of each variable that is true has been added to
+    // the totals of its linear constraints
+    private boolean[] counted;
+
+    // watches[l] holds the clauses that watch literal l, in its first
+    // watchCount[l] entries
+    private Clause[][] watches;
+    private int[] watchCount;
+    // the learnt clauses that are not deleted
+    private final List<Clause> learnts;
+    // the number of learnt clauses above which half of them are deleted
+    private int maxLearnts;
+
+    // the variables and weights of the linear constraints, heaviest first,
+    // and their limits, before the constraints are prepared
+    private final List<int[]> linearVariables, linearWeights;
+    private final List<Integer> linearLimits;
+    // termVariable[k][i] and termWeight[k][i] are the variable and weight of
+    // term i of linear constraint k, heaviest first, and limit[k] its limit
+    private int[][] termVariable, termWeight;
+    private int[] limit;
+    // total[k] is the total weight of the counted variables of constraint k
+    private long[] total;
+    // the terms of constraint k whose variables are counted, in the order in
+    // which they were counted, are the first trueCount[k] of trueTerms[k]
+    private int[][] trueTerms;
+    private int[] trueCount;
+    // occurrences[x] holds the constraint and term of each occurrence of
+    // variable x in a linear constraint, interleaved
+    private int[][] occurrences;
+    // whether the linear constraints have been prepared for the search
+    private boolean prepared;
+
+    // the assigned literals, in the order in which they were assigned
+    private int[] trail;
+    private int trailSize;
+    // trailLimit[d] is the size of the trail when decision level d + 1
+    // began
+    private int[] trailLimit;
+    // the current decision level
+    private int decisionLevel;
+    // the position in the trail of the next literal to propagate
+    private int head;
+
+    // the unassigned variables (and some assigned ones), as a binary heap
+    // ordered by activity in its first heapSize entries
+    private int[] heap;
+    private int heapSize;
+    // heapIndex[x] is the position of variable x in the heap, or -1
+    private int[] heapIndex;
+
+    // the amounts by which the activities of variables and clauses are bumped
+    private double variableIncrement, clauseIncrement;
+    // whether the constraints were found to have no solution
+    private boolean unsatisfiable;
+    // whether the last call of solve was stopped before it finished
+    private boolean stopped;
+    // the number of decisions left until the next check of the flag
+    private int untilPoll;
+
+    /*
+     * invariant:
+     *
+     * values[2x] == -values[2x + 1] for each variable x && the first
+     * trailSize entries of trail are exactly the literals that are true, in
+     * the order in which they were assigned && level[x] <= decisionLevel for
+     * each assigned variable x &&
+     *
+     * every clause that is not deleted, and has at least two literals, is
+     * watched by its first two literals && if a reason clause implies literal
+     * l, then l is its first literal and its other literals are false &&
+     *
+     * once prepared, counted[x] iff variable x is true and at a position
+     * before head in the trail (or at head - 1, while it is propagated) &&
+     * total[k] is the total weight of the terms of constraint k whose
+     * variables are counted && total[k] <= limit[k] whenever no conflict is
+     * being analysed
+     */
+
+    /**
+     * Creates a new solver without any variables or constraints.
+     */
+    SatSolver() {
+        int capacity = 16;
+        variableCount = 0;
+        values = new byte[2 * capacity];
+        level = new int[capacity];
+        reason = new Clause[capacity];
+        reasonConstraint = new int[capacity];
+        reasonTerm = new int[capacity];
+        reasonDepth = new int[capacity];
+        activity = new double[capacity];
+        phase = new boolean[capacity];
+        seen = new boolean[capacity];
+        counted = new boolean[capacity];
+        watches = new Clause[2 * capacity][];
+        watchCount = new int[2 * capacity];
+        trail = new int[capacity];
+        trailLimit = new int[capacity + 1];
+        heap = new int[capacity];
+        heapIndex = new int[capacity];
+        learnts = new ArrayList<>();
+        maxLearnts = FIRST_REDUCTION;
+        linearVariables = new ArrayList<>();
+        linearWeights = new ArrayList<>();
+        linearLimits = new ArrayList<>();
+        prepared = false;
+        trailSize = 0;
+        decisionLevel = 0;
+        head = 0;
+        heapSize = 0;
+        variableIncrement = 1;
+        clauseIncrement = 1;
+        unsatisfiable = false;
+        stopped = false;
+        untilPoll = POLL_INTERVAL;
+    }
+
+    /**
+     * Returns the literal of the given variable that is true iff the
+     * variable has the given value.
+     *
+     * @require variable >= 0
+     */
+    static int literal(int variable, boolean value) {
+        return 2 * variable + (value ? 0 : 1);
+    }
+
+    /**
+     * Adds a new variable, which is given the given value when it is first
+     * decided, and starts with the given activity (so that variables with a
+     * higher activity are decided first, until the conflicts take over), and
+     * returns its number.
+     *
+     * @require initialActivity >= 0 && the search hasn't started
+     * @ensure Returns the number of variables before the call.
+     */
+    int newVariable(boolean initialPhase, double initialActivity) {
+        if (variableCount == level.length) {
+            int capacity = 2 * level.length;
+            values = Arrays.copyOf(values, 2 * capacity);
+            level = Arrays.copyOf(level, capacity);
+            reason = Arrays.copyOf(reason, capacity);
+            reasonConstraint = Arrays.copyOf(reasonConstraint, capacity);
+            reasonTerm = Arrays.copyOf(reasonTerm, capacity);
+            reasonDepth = Arrays.copyOf(reasonDepth, capacity);
+            activity = Arrays.copyOf(activity, capacity);
+            phase = Arrays.copyOf(phase, capacity);
+            seen = Arrays.copyOf(seen, capacity);
+            counted = Arrays.copyOf(counted, capacity);
+            watches = Arrays.copyOf(watches, 2 * capacity);
+            watchCount = Arrays.copyOf(watchCount, 2 * capacity);
+            trail = Arrays.copyOf(trail, capacity);
+            trailLimit = Arrays.copyOf(trailLimit, capacity + 1);
+            heap = Arrays.copyOf(heap, capacity);
+            heapIndex = Arrays.copyOf(heapIndex, capacity);
+        }
+        int variable = variableCount++;
+        activity[variable] = initialActivity;
+        phase[variable] = initialPhase;
+        heapIndex[variable] = -1;
+        insert(variable);
+        return variable;
+    }
+
+    /**
+     * Adds the clause with the given literals: at least one of them must be
+     * true.
+     *
+     * @require literals != null && each literal is a literal of a variable of
+     *          the solver && the search hasn't started
+     * @ensure The clause is one of the constraints, simplified by the values
+     *         assigned at level 0 (if it can't be satisfied, then the
+     *         constraints have no solution).
+     */
+    void addClause(int... literals) {
+        int[] sorted = literals.clone();
+        Arrays.sort(sorted);
+        int size = 0; // the number of literals kept
+        for (int i = 0; i < sorted.length; i++) {
+            int literal = sorted[i];
+            if (values[literal] == TRUE || (i > 0 && literal == (sorted[i
+                    - 1] ^ 1))) {
+                // the clause is satisfied, or contains l and not l
+                return;
+            }
+            if (values[literal] != FALSE && (i == 0 || literal != sorted[i
+                    - 1])) {
+                sorted[size++] = literal;
+            }
+        }
+        if (size == 0) {
+            unsatisfiable = true;
+        } else if (size == 1) {
+            assign(sorted[0], null);
+        } else {
+            Clause clause = new Clause(Arrays.copyOf(sorted, size), false);
+            watch(clause.literals[0], clause);
+            watch(clause.literals[1], clause);
+        }
+    }
+
+    /**
+     * Adds the constraint that at most one of the given variables is true.
+     * Constraints on a few variables are encoded as a binary clause for each
+     * pair of variables, and larger ones, which would need many clauses or
+     * auxiliary variables, as a linear constraint with unit weights and a
+     * limit of 1. Either way, propagation sets the other variables false as
+     * soon as one of them is true, with a binary clause as the reason.
+     *
+     * @require variables != null && each variable is a variable of the solver
+     *          && variables has no duplicates && the search hasn't started
+     * @ensure The constraint is one of the constraints.
+     */
+    void addAtMostOne(int... variables) {
+        if (variables.length > PAIRWISE_LIMIT) {
+            int[] weights = new int[variables.length];
+            Arrays.fill(weights, 1);
+            addLinear(variables, weights, 1);
+            return;
+        }
+        for (int i = 0; i < variables.length; i++) {
+            for (int j = i + 1; j < variables.length; j++) {
+                addClause(literal(variables[i], false), literal(variables[j],
+                        false));
+            }
+        }
+    }
+
+    /**
+     * Adds the constraint that the total weight of the given variables that
+     * are true is at most the given limit.
+     *
+     * @require variables != null && weights != null && variables.length ==
+     *          weights.length && each variable is a variable of the solver &&
+     *          variables has no duplicates && every weight is positive &&
+     *          limit >= 0 && the search hasn't started
+     * @ensure The constraint is one of the constraints.
+     */
+    void addLinear(int[] variables, int[] weights, int limit) {
+        // the terms, heaviest first, as the weight (in descending order) in
+        // the high half and the position in the low half
+        long[] order = new long[variables.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = (long) (Integer.MAX_VALUE - weights[i]) << 32 | i;
+        }
+        Arrays.sort(order);
+        int[] sortedVariables = new int[variables.length];
+        int[] sortedWeights = new int[variables.length];
+        for (int i = 0; i < order.length; i++) {
+            sortedVariables[i] = variables[(int) order[i]];
+            sortedWeights[i] = weights[(int) order[i]];
+        }
+        linearVariables.add(sortedVariables);
+        linearWeights.add(sortedWeights);
+        linearLimits.add(limit);
+    }
+
+    /**
+     * Searches for an assignment of the variables that satisfies every
+     * constraint, until one is found, the constraints are shown to have no
+     * solution, the given flag is set or the given time has passed since the
+     * given start time.
+     *
+     * @require cancelled != null && startTime is a value of System.nanoTime()
+     *          && timeLimit >= 0 (Long.MAX_VALUE being no limit) && solve
+     *          hasn't been called before
+     * @ensure Returns TRUE if a solution was found, in which case isTrue gives
+     *         its values; FALSE if there is no solution; and null if the
+     *         search was stopped first, in which case isTrue gives the values
+     *         of a partial assignment that violates no constraint.
+     */
+    Boolean solve(AtomicBoolean cancelled, long startTime, long timeLimit) {
+        prepare();
+        stopped = false;
+        for (int restarts = 0; !unsatisfiable; restarts++) {
+            Boolean result = search(Math.round(luby(restarts)
+                    * RESTART_BASE), cancelled, startTime, timeLimit);
+            if (result != null || stopped) {
+                return result;
+            }
+        }
+        return Boolean.FALSE;
+    }
+
+    /**
+     * Returns true if the given variable is true in the solution (or partial
+     * assignment) left by solve, and false otherwise.
+     *
+     * @require 0 <= variable < the number of variables && solve has been
+     *          called
+     */
+    boolean isTrue(int variable) {
+        return values[literal(variable, true)] == TRUE;
+    }
+
+    /**
+     * Prepares the linear constraints for the search.
+     *
+     * @ensure The linear constraints are in termVariable, termWeight, limit,
+     *         total, trueTerms, trueCount and occurrences, and prepared.
+     */
+    private void prepare() {
+        if (prepared) {
+            return;
+        }
+        prepared = true;
+        int count = linearLimits.size();
+        termVariable = linearVariables.toArray(new int[count][]);
+        termWeight = linearWeights.toArray(new int[count][]);
+        limit = new int[count];
+        total = new long[count];
+        trueTerms = new int[count][];
+        trueCount = new int[count];
+        int[] occurrenceCount = new int[variableCount];
+        for (int k = 0; k < count; k++) {
+            limit[k] = linearLimits.get(k);
+            trueTerms[k] = new int[termVariable[k].length];
+            for (int variable : termVariable[k]) {
+                occurrenceCount[variable]++;
+            }
+        }
+        occurrences = new int[variableCount][];
+        for (int x = 0; x < variableCount; x++) {
+            occurrences[x] = new int[2 * occurrenceCount[x]];
+            occurrenceCount[x] = 0;
+        }
+        for (int k = 0; k < count; k++) {
+            for (int i = 0; i < termVariable[k].length; i++) {
+                int variable = termVariable[k][i];
+                occurrences[variable][occurrenceCount[variable]++] = k;
+                occurrences[variable][occurrenceCount[variable]++] = i;
+            }
+        }
+    }
+
+    /**
+     * Searches until a solution is found, the constraints are shown to have
+     * no solution, the given number of conflicts is reached (a restart) or
+     * the search is stopped.
+     *
+     * @require prepared && !unsatisfiable
+     * @ensure Returns TRUE if a solution was found, FALSE if there is none,
+     *         and null otherwise (stopped is set if the search was stopped,
+     *         and otherwise the search is back at level 0).
+     */
+    private Boolean search(long maxConflicts, AtomicBoolean cancelled,
+            long startTime, long timeLimit) {
+        long conflicts = 0; // the number of conflicts since the restart
+        while (true) {
+            Clause conflict = propagate();
+            if (conflict != null) {
+                conflicts++;
+                if (decisionLevel == 0) {
+                    unsatisfiable = true;
+                    return Boolean.FALSE;
+                }
+                learn(conflict);
+                variableIncrement /= VARIABLE_DECAY;
+                clauseIncrement /= CLAUSE_DECAY;
+            } else {
+                if (--untilPoll == 0) {
+                    untilPoll = POLL_INTERVAL;
+                    if (cancelled.get() || (timeLimit != Long.MAX_VALUE
+                            && System.nanoTime() - startTime >= timeLimit)) {
+                        stopped = true;
+                        return null;
+                    }
+                }
+                if (conflicts >= maxConflicts) {
+                    cancelUntil(0);
+                    return null;
+                }
+                if (learnts.size() >= maxLearnts) {
+                    reduce();
+                }
+                int next = nextDecision();
+                if (next < 0) {
+                    return Boolean.TRUE;
+                }
+                trailLimit[decisionLevel++] = trailSize;
+                assign(next, null);
+            }
+        }
+    }
+
+    /**
+     * Propagates the literals assigned since the last propagation, until
+     * every one of them has been propagated or a constraint is violated.
+     *
+     * @require prepared
+     * @ensure Returns a clause whose literals are all false if a constraint
+     *         is violated, and otherwise returns null, every clause with all
+     *         but one literal false has that literal true, and no unassigned
+     *         variable of a linear constraint is heavier than the room left
+     *         under its limit.
+     */
+    private Clause propagate() {
+        while (head < trailSize) {
+            int literal = trail[head++];
+            if ((literal & 1) == 0) {
+                count(literal >> 1);
+            }
+            Clause conflict = propagateClauses(literal);
+            if (conflict == null && (literal & 1) == 0) {
+                conflict = propagateLinear(literal >> 1);
+            }
+            if (conflict != null) {
+                return conflict;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Propagates the clauses watched by the negation of the given literal,
+     * which has just become true.
+     *
+     * @require literal is true
+     * @ensure Returns a clause whose literals are all false if there is one
+     *         among those visited, and otherwise returns null and sets the
+     *         last literal of each visited clause true if the others are all
+     *         false.
+     */
+    private Clause propagateClauses(int literal) {
+        int falsified = literal ^ 1;
+        Clause[] list = watches[falsified];
+        if (list == null) {
+            return null;
+        }
+        int size = watchCount[falsified];
+        int kept = 0; // the number of clauses still watching falsified
+        for (int i = 0; i < size; i++) {
+            Clause clause = list[i];
+            if (clause.deleted) {
+                continue;
+            }
+            int[] literals = clause.literals;
+            if (literals[0] == falsified) {
+                literals[0] = literals[1];
+                literals[1] = falsified;
+            }
+            if (values[literals[0]] != TRUE && replaceWatch(clause)) {
+                continue;
+            }
+            list[kept++] = clause;
+            if (values[literals[0]] == FALSE) {
+                // every literal is false
+                while (++i < size) {
+                    list[kept++] = list[i];
+                }
+                Arrays.fill(list, kept, size, null);
+                watchCount[falsified] = kept;
+                return clause;
+            }
+            if (values[literals[0]] == UNASSIGNED) {
+                assign(literals[0], clause);
+            }
+        }
+        Arrays.fill(list, kept, size, null);
+        watchCount[falsified] = kept;
+        return null;
+    }
+
+    /**
+     * Moves the second watch of the given clause to a literal that isn't
+     * false, if there is one.
+     *
+     * @require the second literal of clause is false
+     * @ensure Returns true iff a literal of clause other than the first two
+     *         isn't false, in which case it is swapped with the second
+     *         literal, and watches the clause.
+     */
+    private boolean replaceWatch(Clause clause) {
+        int[] literals = clause.literals;
+        for (int k = 2; k < literals.length; k++) {
+            if (values[literals[k]] != FALSE) {
+                int falsified = literals[1];
+                literals[1] = literals[k];
+                literals[k] = falsified;
+                watch(literals[1], clause);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds the weight of the given variable, which has just become true, to
+     * the totals of its linear constraints.
+     *
+     * @require variable is true && !counted[variable]
+     * @ensure counted[variable] && total and trueTerms include the variable.
+     */
+    private void count(int variable) {
+        int[] occurring = occurrences[variable];
+        for (int j = 0; j < occurring.length; j += 2) {
+            int k = occurring[j];
+            total[k] += termWeight[k][occurring[j + 1]];
+            trueTerms[k][trueCount[k]++] = occurring[j + 1];
+        }
+        counted[variable] = true;
+    }
+
+    /**
+     * Removes the weight of the given variable from the totals of its linear
+     * constraints.
+     *
+     * @require counted[variable] && the variable was the last one counted in
+     *          each of its constraints
+     * @ensure !counted[variable] && total and trueTerms exclude the variable.
+     */
+    private void uncount(int variable) {
+        int[] occurring = occurrences[variable];
+        for (int j = 0; j < occurring.length; j += 2) {
+            int k = occurring[j];
+            total[k] -= termWeight[k][occurring[j + 1]];
+            trueCount[k]--;
+        }
+        counted[variable] = false;
+    }
+
+    /**
+     * Propagates the linear constraints of the given variable, which has just
+     * been counted.
+     *
+     * @require counted[variable]
+     * @ensure Returns a clause whose literals are all false if the total of a
+     *         constraint of the variable is above its limit, and otherwise
+     *         returns null and sets false each unassigned variable of those
+     *         constraints whose weight is more than the room left.
+     */
+    private Clause propagateLinear(int variable) {
+        int[] occurring = occurrences[variable];
+        for (int j = 0; j < occurring.length; j += 2) {
+            int k = occurring[j];
+            long room = limit[k] - total[k];
+            if (room < 0) {
+                return explain(k, -1, trueCount[k]);
+            }
+            int[] variables = termVariable[k];
+            int[] weights = termWeight[k];
+            for (int i = 0; i < variables.length && weights[i] > room; i++) {
+                int falseLiteral = literal(variables[i], false);
+                if (values[falseLiteral] == UNASSIGNED) {
+                    assign(falseLiteral, null);
+                    reasonConstraint[variables[i]] = k;
+                    reasonTerm[variables[i]] = i;
+                    reasonDepth[variables[i]] = trueCount[k];
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns a clause that explains why the given term of the given linear
+     * constraint must be false (or, if term is -1, why the constraint is
+     * violated): the negations of the heaviest of the first depth variables
+     * counted in the constraint, which on their own leave too little room
+     * for the term (or exceed the limit).
+     *
+     * @require 0 <= k < the number of linear constraints && 0 <= depth <=
+     *          trueCount[k] && the total weight w of the first depth terms of
+     *          trueTerms[k] is such that (term == -1 && w > limit[k] || term
+     *          >= 0 && w + the weight of the term > limit[k])
+     * @ensure Returns a clause whose first literal is the negation of the
+     *         variable of the term (if term >= 0), followed by the negations
+     *         of some of those variables whose total weight, plus that of the
+     *         term, is above the limit.
+     */
+    private Clause explain(int k, int term, int depth) {
+        int[] terms = Arrays.copyOf(trueTerms[k], depth);
+        Arrays.sort(terms); // heaviest first
+        long needed = (long) limit[k] + 1 - (term < 0 ? 0
+                : termWeight[k][term]);
+        int[] literals = new int[terms.length + 1];
+        int size = 0;
+        if (term >= 0) {
+            literals[size++] = literal(termVariable[k][term], false);
+        }
+        long weight = 0; // the weight of the counted variables included
+        for (int i = 0; i < terms.length && weight < needed; i++) {
+            weight += termWeight[k][terms[i]];
+            literals[size++] = literal(termVariable[k][terms[i]], false);
+        }
+        return new Clause(Arrays.copyOf(literals, size), false);
+    }
+
+    /**
+     * Learns the first unique implication point clause of the given
+     * conflict, jumps back to the highest level at which it implies a literal
+     * and assigns that literal.
+     *
+     * @require every literal of conflict is false && some literal of conflict
+     *          was assigned at the current decision level > 0
+     * @ensure The learnt clause is added to the learnt clauses (unless it has
+     *         one literal) and its first literal is true.
+     */
+    private void learn(Clause conflict) {
+        List<Integer> learnt = new ArrayList<>();
+        learnt.add(-1); // the asserting literal, once it is found
+        int paths = 0; // the literals of the current level left to resolve
+        int literal = -1; // the last literal resolved on
+        int index = trailSize - 1; // the position in the trail to look from
+        Clause clause = conflict;
+        do {
+            if (clause.learnt) {
+                bump(clause);
+            }
+            int[] literals = clause.literals;
+            for (int j = literal < 0 ? 0 : 1; j < literals.length; j++) {
+                int variable = literals[j] >> 1;
+                if (!seen[variable] && level[variable] > 0) {
+                    bump(variable);
+                    seen[variable] = true;
+                    if (level[variable] >= decisionLevel) {
+                        paths++;
+                    } else {
+                        learnt.add(literals[j]);
+                    }
+                }
+            }
+            while (!seen[trail[index] >> 1]) {
+                index--;
+            }
+            literal = trail[index--];
+            clause = reasonFor(literal >> 1);
+            seen[literal >> 1] = false;
+            paths--;
+        } while (paths > 0);
+        int[] literals = new int[learnt.size()];
+        literals[0] = literal ^ 1;
+        int backLevel = 0; // the highest level of the other literals
+        for (int j = 1; j < literals.length; j++) {
+            literals[j] = learnt.get(j);
+            seen[literals[j] >> 1] = false;
+            if (level[literals[j] >> 1] > backLevel) {
+                backLevel = level[literals[j] >> 1];
+                literals[j] = literals[1];
+                literals[1] = learnt.get(j);
+            }
+        }
+        cancelUntil(backLevel);
+        if (literals.length == 1) {
+            assign(literals[0], null);
+            return;
+        }
+        Clause added = new Clause(literals, true);
+        Set<Integer> levels = new HashSet<>();
+        for (int each : literals) {
+            levels.add(level[each >> 1]);
+        }
+        added.lbd = levels.size();
+        watch(literals[0], added);
+        watch(literals[1], added);
+        learnts.add(added);
+        bump(added);
+        assign(literals[0], added);
+    }
+
+    /**
+     * Returns the clause that implied the value of the given variable, built
+     * from the linear constraint that implied it if there is one, or null if
+     * the variable was decided.
+     *
+     * @require the variable is assigned
+     * @ensure Returns a clause whose first literal is the literal of the
+     *         variable that is true, and whose other literals were false
+     *         before it was assigned, or null if it was decided.
+     */
+    private Clause reasonFor(int variable) {
+        if (reasonConstraint[variable] >= 0) {
+            return explain(reasonConstraint[variable], reasonTerm[variable],
+                    reasonDepth[variable]);
+        }
+        return reason[variable];
+    }
+
+    /**
+     * Unassigns the literals assigned above the given decision level.
+     *
+     * @require 0 <= target
+     * @ensure decisionLevel == min(target, old decisionLevel) && every
+     *         literal assigned above it is unassigned, with its value saved
+     *         as the phase of its variable.
+     */
+    private void cancelUntil(int target) {
+        if (decisionLevel <= target) {
+            return;
+        }
+        for (int i = trailSize - 1; i >= trailLimit[target]; i--) {
+            int literal = trail[i];
+            int variable = literal >> 1;
+            if (counted[variable]) {
+                uncount(variable);
+            }
+            values[literal] = UNASSIGNED;
+            values[literal ^ 1] = UNASSIGNED;
+            reason[variable] = null;
+            phase[variable] = (literal & 1) == 0;
+            if (heapIndex[variable] < 0) {
+                insert(variable);
+            }
+        }
+        trailSize = trailLimit[target];
+        head = trailSize;
+        decisionLevel = target;
+    }
+
+    /**
+     * Deletes half of the learnt clauses, keeping those that span the fewest
+     * decision levels, and then the most active, and those that are reasons.
+     *
+     * @ensure The learnt clauses that are kept are the first half of them in
+     *         order of LBD and then of activity (highest first), and those
+     *         with an LBD of at most GLUE_LBD or that are reasons.
+     */
+    private void reduce() {
+        learnts.sort((a, b) -> a.lbd != b.lbd ? Integer.compare(a.lbd, b.lbd)
+                : Double.compare(b.activity, a.activity));
+        List<Clause> kept = new ArrayList<>();
+        for (int i = 0; i < learnts.size(); i++) {
+            Clause clause = learnts.get(i);
+            int first = clause.literals[0];
+            boolean locked = reason[first >> 1] == clause
+                    && values[first] == TRUE; // whether it is a reason
+            if (i < learnts.size() / 2 || clause.lbd <= GLUE_LBD || locked) {
+                kept.add(clause);
+            } else {
+                clause.deleted = true;
+            }
+        }
+        learnts.clear();
+        learnts.addAll(kept);
+        maxLearnts += REDUCTION_INCREMENT;
+    }
+
+    /**
+     * Returns the literal to decide next: the unassigned variable with the
+     * highest activity, with its phase, or -1 if every variable is assigned.
+     *
+     * @ensure Returns literal(x, phase[x]) for an unassigned variable x with
+     *         the highest activity, or -1 if there is none.
+     */
+    private int nextDecision() {
+        while (heapSize > 0) {
+            int variable = removeMax();
+            if (values[literal(variable, true)] == UNASSIGNED) {
+                return literal(variable, phase[variable]);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Makes the given literal true, for the given reason.
+     *
+     * @require literal is unassigned
+     * @ensure literal is true at the current decision level, with the given
+     *         reason, and is at the end of the trail.
+     */
+    private void assign(int literal, Clause why) {
+        values[literal] = TRUE;
+        values[literal ^ 1] = FALSE;
+        level[literal >> 1] = decisionLevel;
+        reason[literal >> 1] = why;
+        reasonConstraint[literal >> 1] = -1;
+        trail[trailSize++] = literal;
+    }
+
+    /**
+     * Adds the given clause to the clauses that watch the given literal.
+     *
+     * @require clause != null
+     * @ensure clause is in watches[literal].
+     */
+    private void watch(int literal, Clause clause) {
+        if (watches[literal] == null) {
+            watches[literal] = new Clause[4];
+        } else if (watchCount[literal] == watches[literal].length) {
+            watches[literal] = Arrays.copyOf(watches[literal], 2
+                    * watchCount[literal]);
+        }
+        watches[literal][watchCount[literal]++] = clause;
+    }
+
+    /**
+     * Increases the activity of the given variable.
+     *
+     * @require 0 <= variable < variableCount
+     */
+    private void bump(int variable) {
+        activity[variable] += variableIncrement;
+        if (activity[variable] > RESCALE_LIMIT) {
+            for (int x = 0; x < variableCount; x++) {
+                activity[x] /= RESCALE_LIMIT;
+            }
+            variableIncrement /= RESCALE_LIMIT;
+        }
+        if (heapIndex[variable] >= 0) {
+            up(heapIndex[variable]);
+        }
+    }
+
+    /**
+     * Increases the activity of the given learnt clause.
+     *
+     * @require clause.learnt
+     */
+    private void bump(Clause clause) {
+        clause.activity += clauseIncrement;
+        if (clause.activity > RESCALE_LIMIT) {
+            for (Clause each : learnts) {
+                each.activity /= RESCALE_LIMIT;
+            }
+            clauseIncrement /= RESCALE_LIMIT;
+        }
+    }
+
+    /**
+     * Adds the given variable to the heap.
+     *
+     * @require heapIndex[variable] < 0
+     */
+    private void insert(int variable) {
+        heap[heapSize] = variable;
+        heapIndex[variable] = heapSize;
+        up(heapSize++);
+    }
+
+    /**
+     * Removes the variable with the highest activity from the heap, and
+     * returns it.
+     *
+     * @require heapSize > 0
+     */
+    private int removeMax() {
+        int result = heap[0];
+        heapIndex[result] = -1;
+        heapSize--;
+        if (heapSize > 0) {
+            heap[0] = heap[heapSize];
+            heapIndex[heap[0]] = 0;
+            down(0);
+        }
+        return result;
+    }
+
+    /**
+     * Moves the variable at the given position of the heap up until its
+     * parent is at least as active.
+     *
+     * @require 0 <= position < heapSize
+     */
+    private void up(int position) {
+        int variable = heap[position];
+        while (position > 0) {
+            int parent = (position - 1) / 2;
+            if (activity[heap[parent]] >= activity[variable]) {
+                break;
+            }
+            heap[position] = heap[parent];
+            heapIndex[heap[position]] = position;
+            position = parent;
+        }
+        heap[position] = variable;
+        heapIndex[variable] = position;
+    }
+
+    /**
+     * Moves the variable at the given position of the heap down until its
+     * children are no more active.
+     *
+     * @require 0 <= position < heapSize
+     */
+    private void down(int position) {
+        int variable = heap[position];
+        while (2 * position + 1 < heapSize) {
+            int child = 2 * position + 1;
+            if (child + 1 < heapSize && activity[heap[child
+                    + 1]] > activity[heap[child]]) {
+                child++;
+            }
+            if (activity[heap[child]] <= activity[variable]) {
+                break;
+            }
+            heap[position] = heap[child];
+            heapIndex[heap[position]] = position;
+            position = child;
+        }
+        heap[position] = variable;
+        heapIndex[variable] = position;
+    }
+
+    /**
+     * Returns term i of the Luby sequence (1, 1, 2, 1, 1, 2, 4, ...), which
+     * scales the restart intervals.
+     *
+     * @require i >= 0
+     */
+    private static double luby(int i) {
+        int size = 1; // the length of the smallest complete prefix holding i
+        int power = 0; // its last term is 2^power
+        while (size < i + 1) {
+            power++;
+            size = 2 * size + 1;
+        }
+        while (size - 1 != i) {
+            size = (size - 1) / 2;
+            power--;
+            i %= size;
+        }
+        return Math.pow(2, power);
+    }
+
+}
@@ -0,0 +1,244 @@
+package planner;
+
+import java.util.*;
+
+/**
+ * <p>
+ * Steps an AllocationSearch one safe allocation at a time, in depth-first
+ * order, visiting the safe allocations of all of the events that extend the
+ * partial allocation it had when stepping started.
+ * </p>
+ *
+ * <p>
+ * The state of the stepping is kept on an explicit stack of levels, one for
+ * each event placed since stepping started, so only the current path of the
+ * search is held in memory. Events are placed and removed through the search,
+ * in the same order as its recursive searches, and only the allocations kept
+ * by its rules for skipping allocations (see AllocationSearch.isKept) are
+ * visited. The untried part of a stepped search can be split off into an
+ * independent stepped search (see split()).
+ * </p>
+ */
+final class SteppedAllocationSearch {
+
+    // the search that is stepped
+    private final AllocationSearch search;
+    // candidates[d] holds the venues to try for the event placed at depth d
+    private final int[][] candidates;
+    // levelEvent[d] is the event being placed at depth d
+    private final int[] levelEvent;
+    // levelCount[d] is the number of venues in candidates[d] to try
+    private final int[] levelCount;
+    // levelPosition[d] is the position in candidates[d] of the venue tried
+    private final int[] levelPosition;
+    // the depth at which stepping started (it never backtracks past it)
+    private final int baseDepth;
+    // whether stepping has started, and whether it has finished
+    private boolean started, finished;
+
+    /*
+     * invariant: search != null && the arrays have search.getEventCount()
+     * entries && baseDepth <= search.getDepth() && if started and not
+     * finished, then levels baseDepth .. search.getDepth() are open, and
+     * levels baseDepth .. search.getDepth() - 1 hold the venue placed at them
+     */
+
+    /**
+     * Creates a new stepped search over the safe allocations that extend the
+     * partial allocation of the given search.
+     *
+     * @require search != null && search is not used by anything else while
+     *          it is stepped
+     */
+    SteppedAllocationSearch(AllocationSearch search) {
+        this.search = search;
+        int eventCount = search.getEventCount();
+        candidates = new int[eventCount][];
+        levelEvent = new int[eventCount];
+        levelCount = new int[eventCount];
+        levelPosition = new int[eventCount];
+        baseDepth = search.getDepth();
+        started = false;
+        finished = false;
+    }
+
+    /**
+     * <p>
+     * Moves the search on to the next safe allocation of all of the events,
+     * in depth-first order, returning true if there is one and false if every
+     * safe allocation has already been visited.
+     * </p>
+     *
+     * <p>
+     * After a call that returns true, getAllocation() returns the allocation
+     * reached. (The recursive searches must not be used on a search that has
+     * been stepped.)
+     * </p>
+     *
+     * @ensure Returns true iff the search has been moved to a safe allocation
+     *         of all of the events (that extends the partial allocation at
+     *         which stepping started) that has not been visited before.
+     */
+    boolean advance() {
+        if (finished) {
+            return false;
+        }
+        if (!started) {
+            started = true;
+            if (search.getRemaining() == 0) {
+                // the partial allocation is the only allocation to visit
+                return search.isKept();
+            }
+            openLevel();
+        } else if (search.getRemaining() == 0) {
+            if (search.getDepth() == baseDepth) {
+                finished = true;
+                return false;
+            }
+            // move on from the allocation visited last
+            removeLast();
+        }
+        while (true) {
+            int d = search.getDepth(); // the level whose next venue is tried
+            int next = levelEvent[d]; // the event placed at that level
+            boolean placed = false; // whether a venue was safely placed
+            while (!placed && ++levelPosition[d] < levelCount[d]) {
+                placed = search.tryPlace(next, candidates[d][levelPosition[d]]);
+            }
+            if (placed) {
+                if (search.getRemaining() == 0) {
+                    if (search.isKept()) {
+                        return true;
+                    }
+                    // the allocation reached is skipped
+                    removeLast();
+                } else {
+                    openLevel();
+                }
+            } else if (d == baseDepth) {
+                // every venue at the base level has been tried
+                finished = true;
+                return false;
+            } else {
+                removeLast();
+            }
+        }
+    }
+
+    /**
+     * <p>
+     * Splits off part of the venues not yet tried by this stepped search into
+     * a new, independent stepped search, and returns it, or returns null if
+     * there is nothing left to split off.
+     * </p>
+     *
+     * <p>
+     * The venues split off are the later half of the untried venues at the
+     * shallowest level of the search where some can be handed over, so that
+     * the new search covers as large a part of the search tree as possible.
+     * Between them, this search and the new search visit exactly the
+     * allocations that this search would have visited on its own.
+     * </p>
+     *
+     * @ensure Returns a new stepped search over a copy of the search, or null
+     *         if there is no untried venue left to hand over.
+     */
+    SteppedAllocationSearch split() {
+        if (finished) {
+            return null;
+        }
+        if (!started) {
+            if (search.getRemaining() == 0) {
+                return null;
+            }
+            started = true;
+            openLevel();
+        }
+        int depth = search.getDepth();
+        // the shallowest level with untried venues to hand over
+        int s = baseDepth;
+        while (s <= depth && s < levelEvent.length && !canSplit(s)) {
+            s++;
+        }
+        if (s > depth || s == levelEvent.length) {
+            return null;
+        }
+        int untried = levelCount[s] - levelPosition[s] - 1;
+        int mid = levelPosition[s] + 1 + untried / 2; // first venue handed over
+
+        AllocationSearch copy = new AllocationSearch(search);
+        // undo the placements of the copy at levels s and deeper
+        for (int d = depth - 1; d >= s; d--) {
+            copy.undoPlace(levelEvent[d], candidates[d][levelPosition[d]]);
+        }
+        SteppedAllocationSearch result = new SteppedAllocationSearch(copy);
+        result.started = true;
+        result.levelEvent[s] = levelEvent[s];
+        result.candidates[s] = Arrays.copyOfRange(candidates[s], mid,
+                levelCount[s]);
+        result.levelCount[s] = levelCount[s] - mid;
+        result.levelPosition[s] = -1;
+        levelCount[s] = mid;
+        return result;
+    }
+
+    /**
+     * Returns the partial allocation of the search as a map from events to
+     * venues. After a call to advance() that returns true, this is a safe
+     * allocation of all of the events.
+     *
+     * @ensure Returns a new map from each allocated event to its venue.
+     */
+    Map<Event, Venue> getAllocation() {
+        return search.getAllocation();
+    }
+
+    /**
+     * Returns true if untried venues at level s can be handed over to a new
+     * search, and false otherwise.
+     *
+     * @require baseDepth <= s <= search.getDepth() && s <
+     *          search.getEventCount() && level s is open
+     * @ensure Returns true iff level s has an untried venue and either a venue
+     *         placed at it (which this search keeps) or another untried venue
+     *         (which this search keeps).
+     */
+    private boolean canSplit(int s) {
+        int untried = levelCount[s] - levelPosition[s] - 1;
+        return untried >= (s < search.getDepth() ? 1 : 2);
+    }
+
+    /**
+     * Opens a new level at the current depth of the search, choosing the
+     * event to place there and the venues to try for it.
+     *
+     * @require search.getRemaining() > 0
+     * @ensure levelEvent[depth] is the next event to allocate, and
+     *         candidates[depth][0 .. levelCount[depth] - 1] are the venues to
+     *         try for it, none of which have been tried.
+     */
+    private void openLevel() {
+        int depth = search.getDepth();
+        int next = search.nextEvent();
+        if (candidates[depth] == null) {
+            candidates[depth] = new int[search.getVenueCount()];
+        }
+        levelEvent[depth] = next;
+        levelCount[depth] = search.fillCandidates(next, candidates[depth]);
+        levelPosition[depth] = -1;
+    }
+
+    /**
+     * Undoes the placement made at the deepest placed level (which stays
+     * open, so its next venue is tried after it).
+     *
+     * @require search.getDepth() > baseDepth
+     * @ensure The event placed at level depth - 1 is unallocated, and the
+     *         traffic it caused is removed.
+     */
+    private void removeLast() {
+        int d = search.getDepth() - 1; // the level of the placement to undo
+        search.undoPlace(levelEvent[d], candidates[d][levelPosition[d]]);
+    }
+
+}
@@ -0,0 +1,197 @@
+package planner;
+
+import java.util.*;
+
+/**
+ * <p>
+ * An iterator over the allocations that can be obtained from a given
+ * allocation by swapping interchangeable events and interchangeable venues
+ * (see Symmetry), including the given allocation itself.
+ * </p>
+ *
+ * <p>
+ * Two such allocations differ only in which venues of each class of venues
+ * host events of each class of events, and in which events of each class of
+ * events are hosted at those venues. The iterator steps through every
+ * arrangement of the event classes over the venues of each venue class, and
+ * every arrangement of the events of each event class over the venues
+ * assigned to the class, like an odometer, so each allocation is returned
+ * exactly once and only the current arrangement is held in memory.
+ * </p>
+ */
+class SymmetricExpansion implements Iterator<Map<Event, Venue>> {
+
+    // the label of a venue that does not host an event
+    private final static int UNUSED = Integer.MAX_VALUE;
+
+    // venueGroups[j] is the j-th class of interchangeable venues
+    private final Venue[][] venueGroups;
+    // eventGroups[i] is the i-th class of interchangeable events
+    private final Event[][] eventGroups;
+    // labels[j][p] is the class of the event hosted by venueGroups[j][p], or
+    // UNUSED if it hosts no event
+    private final int[][] labels;
+    // positions[i][k] is the position in eventGroups[i] of the event hosted
+    // by the k-th venue labelled i
+    private final int[][] positions;
+    // whether there is another allocation to return
+    private boolean more;
+
+    /*
+     * invariant:
+     *
+     * each labels[j] and positions[i] is a permutation of the one the
+     * iterator started with && each event class i labels exactly
+     * eventGroups[i].length venues
+     */
+
+    /**
+     * Creates a new iterator over the allocations symmetric to the given
+     * allocation of events to venues.
+     *
+     * @require allocation != null && venues != null && allocation is an
+     *          allocation of distinct events to distinct venues in venues &&
+     *          venues does not contain null or duplicates
+     */
+    SymmetricExpansion(Map<Event, Venue> allocation, List<Venue> venues) {
+        Event[] events = allocation.keySet().toArray(new Event[0]);
+        Venue[] places = venues.toArray(new Venue[0]);
+        int[] eventClass = Symmetry.eventClasses(events);
+        int[] venueClass = Symmetry.venueClasses(places);
+        eventGroups = group(events, eventClass, new Event[0][]);
+        venueGroups = group(places, venueClass, new Venue[0][]);
+
+        // the class of the event hosted at each venue
+        Map<Venue, Integer> hosted = new HashMap<>();
+        for (int e = 0; e < events.length; e++) {
+            hosted.put(allocation.get(events[e]), eventClass[e]);
+        }
+        labels = new int[venueGroups.length][];
+        for (int j = 0; j < venueGroups.length; j++) {
+            labels[j] = new int[venueGroups[j].length];
+            for (int p = 0; p < labels[j].length; p++) {
+                labels[j][p] = hosted.getOrDefault(venueGroups[j][p], UNUSED);
+            }
+            // start from the first arrangement in lexicographic order
+            Arrays.sort(labels[j]);
+        }
+        positions = new int[eventGroups.length][];
+        for (int i = 0; i < eventGroups.length; i++) {
+            positions[i] = new int[eventGroups[i].length];
+            for (int k = 0; k < positions[i].length; k++) {
+                positions[i][k] = k;
+            }
+        }
+        more = true;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return more;
+    }
+
+    @Override
+    public Map<Event, Venue> next() {
+        if (!more) {
+            throw new NoSuchElementException();
+        }
+        Map<Event, Venue> result = new HashMap<>();
+        int[] hostedSoFar = new int[eventGroups.length]; // venues per class
+        for (int j = 0; j < venueGroups.length; j++) {
+            for (int p = 0; p < labels[j].length; p++) {
+                int i = labels[j][p]; // the class of the event hosted
+                if (i != UNUSED) {
+                    Event event = eventGroups[i][positions[i][hostedSoFar[i]]];
+                    result.put(event, venueGroups[j][p]);
+                    hostedSoFar[i]++;
+                }
+            }
+        }
+        more = advance();
+        return result;
+    }
+
+    /**
+     * Moves on to the next arrangement, returning false if every arrangement
+     * has been visited.
+     *
+     * @ensure Steps the arrangements like an odometer, and returns true iff
+     *         the arrangements did not wrap around to the first one.
+     */
+    private boolean advance() {
+        for (int i = positions.length - 1; i >= 0; i--) {
+            if (nextPermutation(positions[i])) {
+                return true;
+            }
+        }
+        for (int j = labels.length - 1; j >= 0; j--) {
+            if (nextPermutation(labels[j])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Rearranges the given array into the next of its distinct permutations
+     * in lexicographic order, returning true, or into the first of them
+     * (ascending order), returning false, if it is the last of them.
+     *
+     * @require items != null
+     * @ensure items is rearranged into its next distinct permutation, and
+     *         returns true iff that permutation is not the first one.
+     */
+    private static boolean nextPermutation(int[] items) {
+        int i = items.length - 2; // the last position before an ascent
+        while (i >= 0 && items[i] >= items[i + 1]) {
+            i--;
+        }
+        if (i >= 0) {
+            int j = items.length - 1; // the last item greater than items[i]
+            while (items[j] <= items[i]) {
+                j--;
+            }
+            swap(items, i, j);
+        }
+        for (int a = i + 1, b = items.length - 1; a < b; a++, b--) {
+            swap(items, a, b);
+        }
+        return i >= 0;
+    }
+
+    /**
+     * Swaps items[a] and items[b].
+     *
+     * @require 0 <= a, b < items.length
+     */
+    private static void swap(int[] items, int a, int b) {
+        int item = items[a];
+        items[a] = items[b];
+        items[b] = item;
+    }
+
+    /**
+     * Returns the given items grouped by class, in order of class and of
+     * position within each class.
+     *
+     * @require items != null && classes.length == items.length && the
+     *          classes are numbered 0 to k - 1 for some k
+     * @ensure Returns result such that result[c] holds the items of class c,
+     *         in the order in which they are given.
+     */
+    private static <T> T[][] group(T[] items, int[] classes, T[][] empty) {
+        List<List<T>> groups = new ArrayList<>();
+        for (int i = 0; i < items.length; i++) {
+            if (classes[i] == groups.size()) {
+                groups.add(new ArrayList<>());
+            }
+            groups.get(classes[i]).add(items[i]);
+        }
+        T[][] result = Arrays.copyOf(empty, groups.size());
+        for (int c = 0; c < result.length; c++) {
+            result[c] = groups.get(c).toArray(Arrays.copyOf(items, 0));
+        }
+        return result;
+    }
+
+}
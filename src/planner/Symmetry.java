@@ -0,0 +1,148 @@
+package planner;
+
+import java.util.*;
+
+/**
+ * <p>
+ * Classes of interchangeable events and venues.
+ * </p>
+ *
+ * <p>
+ * Events of the same size can be hosted by exactly the same venues, and
+ * generate exactly the same traffic at each of them, and venues that differ
+ * only in their names (see Venue.isInterchangeableWith) can host exactly the
+ * same events, generating exactly the same traffic. Swapping the venues of two
+ * interchangeable events, or the events of two interchangeable venues, turns
+ * a safe allocation into another safe allocation.
+ * </p>
+ *
+ * <p>
+ * Each class is numbered by the position of its first member, so class 0 is
+ * the class of the first event (or venue), class 1 the class of the first
+ * event that is not in class 0, and so on.
+ * </p>
+ */
+final class Symmetry {
+
+    /**
+     * This class only provides static methods.
+     */
+    private Symmetry() {
+    }
+
+    /**
+     * Returns the class of each of the given events, where events are in the
+     * same class iff they have the same size.
+     *
+     * @require events != null && !events contains null
+     * @ensure Returns result such that result[e] == result[f] iff events[e]
+     *         and events[f] have the same size, numbered in order of first
+     *         appearance from 0.
+     */
+    static int[] eventClasses(Event[] events) {
+        int[] result = new int[events.length];
+        // the class of each size seen so far
+        Map<Integer, Integer> classes = new HashMap<>();
+        for (int e = 0; e < events.length; e++) {
+            Integer known = classes.putIfAbsent(events[e].getSize(), classes
+                    .size());
+            result[e] = known == null ? classes.size() - 1 : known;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the class of each of the given venues, where venues are in the
+     * same class iff they are interchangeable.
+     *
+     * @require venues != null && !venues contains null
+     * @ensure Returns result such that result[v] == result[w] iff
+     *         venues[v].isInterchangeableWith(venues[w]), numbered in order of
+     *         first appearance from 0.
+     */
+    static int[] venueClasses(Venue[] venues) {
+        int[] result = new int[venues.length];
+        // the first venue of each class found so far
+        List<Venue> representatives = new ArrayList<>();
+        for (int v = 0; v < venues.length; v++) {
+            int c = 0; // the class of venue v
+            while (c < representatives.size() && !representatives.get(c)
+                    .isInterchangeableWith(venues[v])) {
+                c++;
+            }
+            if (c == representatives.size()) {
+                representatives.add(venues[v]);
+            }
+            result[v] = c;
+        }
+        return result;
+    }
+
+    /**
+     * Returns, for each item, the previous item in the same class, or -1 if
+     * it is the first of its class.
+     *
+     * @require classes != null
+     * @ensure Returns result such that result[i] is the greatest j < i with
+     *         classes[j] == classes[i], or -1 if there is none.
+     */
+    static int[] previousInClass(int[] classes) {
+        int[] result = new int[classes.length];
+        // the last item seen in each class
+        Map<Integer, Integer> last = new HashMap<>();
+        for (int i = 0; i < classes.length; i++) {
+            Integer previous = last.put(classes[i], i);
+            result[i] = previous == null ? -1 : previous;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the given classes with each of the given items moved into a
+     * class of its own, e.g. because a constraint applies to it that doesn't
+     * apply to the other members of its class, so that it is no longer
+     * interchangeable with them.
+     *
+     * @require classes != null && alone != null && alone.length ==
+     *          classes.length
+     * @ensure Returns result such that result[i] == result[j] iff i == j, or
+     *         !alone[i] && !alone[j] && classes[i] == classes[j], numbered in
+     *         order of first appearance from 0.
+     */
+    static int[] separate(int[] classes, boolean[] alone) {
+        int[] result = new int[classes.length];
+        // the new number of each class seen so far
+        Map<Integer, Integer> numbers = new HashMap<>();
+        int count = 0; // the number of classes numbered so far
+        for (int i = 0; i < classes.length; i++) {
+            if (alone[i]) {
+                result[i] = count++;
+            } else {
+                Integer known = numbers.putIfAbsent(classes[i], count);
+                result[i] = known == null ? count++ : known;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns, for each item, the next item in the same class, or -1 if it is
+     * the last of its class.
+     *
+     * @require classes != null
+     * @ensure Returns result such that result[i] is the least j > i with
+     *         classes[j] == classes[i], or -1 if there is none.
+     */
+    static int[] nextInClass(int[] classes) {
+        int[] result = new int[classes.length];
+        Arrays.fill(result, -1);
+        int[] previous = previousInClass(classes);
+        for (int i = 0; i < classes.length; i++) {
+            if (previous[i] >= 0) {
+                result[previous[i]] = i;
+            }
+        }
+        return result;
+    }
+
+}
@@ -11,6 +11,12 @@ import java.util.*;
  * The traffic on a corridor is measured in non-negative integer units,
  * representing people.
  * </p>
+ * 
+ * <p>
+ * This class records traffic in a map ordered by corridor. Subclasses may use
+ * a different representation (see DenseTraffic), provided that they override
+ * every public method and asMap().
+ * </p>
  */
 public class Traffic {
 
@@ -24,6 +30,10 @@ public class Traffic {
      * with them.
      */
     private TreeMap<Corridor, Integer> trafficMap;
+    // the structural hash code of the traffic (only valid if hashValid)
+    private int hash;
+    // whether hash is up to date with trafficMap
+    private boolean hashValid;
 
     /*
      * invariant:
@@ -69,7 +79,7 @@ public class Traffic {
      *             if initialTraffic is null
      */
     public Traffic(Traffic initialTraffic) {
-        trafficMap = new TreeMap<Corridor, Integer>(initialTraffic.trafficMap);
+        trafficMap = new TreeMap<Corridor, Integer>(initialTraffic.asMap());
     }
 
     /**
@@ -94,11 +104,9 @@ public class Traffic {
         if (corridor == null) {
             throw new NullPointerException("corridor cannot be null");
         }
-        int currentAmount = 0; // the current amount of traffic on corridor
-        if (trafficMap.get(corridor) != null) {
-            currentAmount = trafficMap.get(corridor);
-        }
-        return currentAmount;
+        // the current amount of traffic on corridor (null if there is none)
+        Integer currentAmount = trafficMap.get(corridor);
+        return currentAmount == null ? 0 : currentAmount;
     }
 
     /**
@@ -132,7 +140,7 @@ public class Traffic {
      *             if other is null
      */
     public boolean sameTraffic(Traffic other) {
-        return trafficMap.equals(other.trafficMap);
+        return asMap().equals(other.asMap());
     }
 
     /**
@@ -187,6 +195,7 @@ public class Traffic {
         }
 
         // update the traffic on the corridor by amount
+        hashValid = false;
         if (currentAmount + amount == 0) {
             trafficMap.remove(corridor);
         } else {
@@ -218,9 +227,11 @@ public class Traffic {
      *             if extraTraffic is null
      */
     public void addTraffic(Traffic extraTraffic) {
-        for (Corridor corridor : extraTraffic.trafficMap.keySet()) {
-            trafficMap.put(corridor, getTraffic(corridor) + extraTraffic
-                    .getTraffic(corridor));
+        hashValid = false;
+        for (Map.Entry<Corridor, Integer> entry : extraTraffic.asMap()
+                .entrySet()) {
+            Corridor corridor = entry.getKey();
+            trafficMap.put(corridor, getTraffic(corridor) + entry.getValue());
         }
     }
 
@@ -259,13 +270,52 @@ public class Traffic {
      */
     @Override
     public String toString() {
+        // the traffic to describe, in the natural ordering of corridors
+        SortedMap<Corridor, Integer> traffic = asMap();
         String result = ""; // the string representation
-        for (Corridor c : trafficMap.keySet()) {
-            result += c + ": " + trafficMap.get(c) + LINE_SEPARATOR;
+        for (Corridor c : traffic.keySet()) {
+            result += c + ": " + traffic.get(c) + LINE_SEPARATOR;
         }
         return result;
     }
 
+    /**
+     * Returns a map from each corridor with traffic in this object to its
+     * (positive) amount of traffic, in the natural ordering of corridors. The
+     * map returned must not be modified.
+     * 
+     * @ensure Returns a sorted map m such that m.keySet() equals
+     *         this.getCorridorsWithTraffic() and m.get(c) ==
+     *         this.getTraffic(c) for each corridor c in m.keySet().
+     */
+    SortedMap<Corridor, Integer> asMap() {
+        return trafficMap;
+    }
+
+    /**
+     * <p>
+     * Returns a hash code for the traffic currently recorded by this object.
+     * Traffic objects that are the same according to sameTraffic have the
+     * same traffic hash code.
+     * </p>
+     * 
+     * <p>
+     * The hash code is computed at most once between modifications of this
+     * object. (Since a Traffic object is mutable, this is not its hashCode,
+     * and it should not be used while the object can be modified.)
+     * </p>
+     * 
+     * @ensure Returns the sum, over the corridors c with traffic, of
+     *         c.hashCode() ^ this.getTraffic(c).
+     */
+    int trafficHash() {
+        if (!hashValid) {
+            hash = asMap().hashCode();
+            hashValid = true;
+        }
+        return hash;
+    }
+
     /**
      * <p>
      * Determines whether this class is internally consistent (i.e. it satisfies
@@ -0,0 +1,269 @@
+package planner;
+
+import java.util.*;
+
+/**
+ * <p>
+ * An immutable table of the traffic generated by hosting each of a list of
+ * events at each of a list of venues.
+ * </p>
+ *
+ * <p>
+ * The events, venues and the corridors that they use are indexed by dense
+ * integer ids: event e is the e-th event given, venue v is the v-th venue
+ * given, and corridor c is the c-th corridor with traffic in the natural
+ * ordering of corridors. For each pair of an event e and a venue v that can
+ * host it, the table records the corridors that hosting e at v puts traffic
+ * on (in ascending order of id), and the amount of traffic on each of them,
+ * as computed by v.getTraffic(e).
+ * </p>
+ *
+ * <p>
+ * The table is computed once, when it is created, and reading from it does
+ * not create any objects.
+ * </p>
+ */
+public class TrafficTable {
+
+    // the events in the table, indexed by id
+    private final Event[] events;
+    // the venues in the table, indexed by id
+    private final Venue[] venues;
+    // the corridors with traffic in the table, indexed by id
+    private final Corridor[] corridors;
+    // the capacities of the corridors, indexed by id
+    private final int[] capacities;
+    /*
+     * usage[e * venues.length + v] is null if venue v can't host event e, and
+     * otherwise holds the corridor ids and amounts of traffic generated by
+     * hosting event e at venue v, interleaved (i.e. {c0, t0, c1, t1, ...}).
+     */
+    private final int[][] usage;
+
+    /*
+     * invariant:
+     *
+     * events != null && venues != null && corridors != null &&
+     *
+     * corridors is sorted in ascending natural order && capacities[c] ==
+     * corridors[c].getCapacity() &&
+     *
+     * events and venues contain no duplicates &&
+     *
+     * usage[e * venues.length + v] == null iff !venues[v].canHost(events[e])
+     * && otherwise it lists each corridor with traffic in
+     * venues[v].getTraffic(events[e]) exactly once, in ascending order of id,
+     * with its (positive) amount of traffic
+     */
+
+    /**
+     * Creates a new table of the traffic generated by hosting each of the
+     * given events at each of the given venues.
+     *
+     * @param events
+     *            the events in the table
+     * @param venues
+     *            the venues in the table
+     * @throws NullPointerException
+     *             if events or venues are null, or contain null
+     * @throws IllegalArgumentException
+     *             if events or venues contain duplicates
+     */
+    public TrafficTable(List<Event> events, List<Venue> venues) {
+        this.events = events.toArray(new Event[0]);
+        this.venues = venues.toArray(new Venue[0]);
+        // only checks that there are no duplicates
+        indexOf(this.events);
+        indexOf(this.venues);
+
+        // the traffic generated by each pair of an event and a venue
+        Traffic[] traffic = new Traffic[this.events.length
+                * this.venues.length];
+        // the corridors that have traffic for some pair
+        SortedSet<Corridor> used = new TreeSet<>();
+        for (int e = 0; e < this.events.length; e++) {
+            for (int v = 0; v < this.venues.length; v++) {
+                if (this.venues[v].canHost(this.events[e])) {
+                    int pair = e * this.venues.length + v;
+                    traffic[pair] = this.venues[v].getTraffic(this.events[e]);
+                    used.addAll(traffic[pair].getCorridorsWithTraffic());
+                }
+            }
+        }
+
+        corridors = used.toArray(new Corridor[0]);
+        capacities = new int[corridors.length];
+        // the ids of the corridors
+        Map<Corridor, Integer> corridorIds = indexOf(corridors);
+        for (int c = 0; c < corridors.length; c++) {
+            capacities[c] = corridors[c].getCapacity();
+        }
+
+        usage = new int[traffic.length][];
+        for (int pair = 0; pair < traffic.length; pair++) {
+            if (traffic[pair] != null) {
+                // the ids of the corridors used by this pair, in order
+                int[] ids = new int[traffic[pair].getCorridorsWithTraffic()
+                        .size()];
+                int k = 0;
+                for (Corridor corridor : traffic[pair]
+                        .getCorridorsWithTraffic()) {
+                    ids[k++] = corridorIds.get(corridor);
+                }
+                Arrays.sort(ids);
+                usage[pair] = new int[2 * ids.length];
+                for (k = 0; k < ids.length; k++) {
+                    usage[pair][2 * k] = ids[k];
+                    usage[pair][2 * k + 1] = traffic[pair].getTraffic(
+                            corridors[ids[k]]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of events in the table.
+     *
+     * @return the number of events in the table
+     */
+    public int getEventCount() {
+        return events.length;
+    }
+
+    /**
+     * Returns the number of venues in the table.
+     *
+     * @return the number of venues in the table
+     */
+    public int getVenueCount() {
+        return venues.length;
+    }
+
+    /**
+     * Returns the number of distinct corridors that hosting some event in the
+     * table at some venue in the table puts traffic on.
+     *
+     * @return the number of corridors in the table
+     */
+    public int getCorridorCount() {
+        return corridors.length;
+    }
+
+    /**
+     * Returns the event with the given id.
+     *
+     * @param e
+     *            the id of the event
+     * @return the event with id e
+     * @throws IndexOutOfBoundsException
+     *             if e is not the id of an event in the table
+     */
+    public Event getEvent(int e) {
+        return events[e];
+    }
+
+    /**
+     * Returns the venue with the given id.
+     *
+     * @param v
+     *            the id of the venue
+     * @return the venue with id v
+     * @throws IndexOutOfBoundsException
+     *             if v is not the id of a venue in the table
+     */
+    public Venue getVenue(int v) {
+        return venues[v];
+    }
+
+    /**
+     * Returns the corridor with the given id.
+     *
+     * @param c
+     *            the id of the corridor
+     * @return the corridor with id c
+     * @throws IndexOutOfBoundsException
+     *             if c is not the id of a corridor in the table
+     */
+    public Corridor getCorridor(int c) {
+        return corridors[c];
+    }
+
+    /**
+     * Returns the capacity of the corridor with the given id.
+     *
+     * @param c
+     *            the id of the corridor
+     * @return the capacity of the corridor with id c
+     * @throws IndexOutOfBoundsException
+     *             if c is not the id of a corridor in the table
+     */
+    public int getCapacity(int c) {
+        return capacities[c];
+    }
+
+    /**
+     * Returns true if venue v can host event e, and false otherwise.
+     *
+     * @param e
+     *            the id of the event
+     * @param v
+     *            the id of the venue
+     * @return true iff getVenue(v).canHost(getEvent(e))
+     * @throws IndexOutOfBoundsException
+     *             if e or v are not ids of an event and venue in the table
+     */
+    public boolean canHost(int e, int v) {
+        return usage[pair(e, v)] != null;
+    }
+
+    /**
+     * Returns the corridor ids and amounts of traffic generated by hosting
+     * event e at venue v, interleaved (i.e. {c0, t0, c1, t1, ...}). The array
+     * returned is part of the table and must not be modified.
+     *
+     * @require 0 <= e < getEventCount() && 0 <= v < getVenueCount() &&
+     *          canHost(e, v)
+     * @ensure Returns the usage of event e at venue v.
+     */
+    int[] getUsage(int e, int v) {
+        return usage[pair(e, v)];
+    }
+
+    /**
+     * Returns the index in usage of the pair of event e and venue v.
+     *
+     * @throws IndexOutOfBoundsException
+     *             if e or v are not ids of an event and venue in the table
+     */
+    private int pair(int e, int v) {
+        if (e < 0 || e >= events.length || v < 0 || v >= venues.length) {
+            throw new IndexOutOfBoundsException("No event " + e
+                    + " or venue " + v + " in the table.");
+        }
+        return e * venues.length + v;
+    }
+
+    /**
+     * Returns a map from each of the given items to its index in items.
+     *
+     * @require items != null && !items contains null
+     * @ensure Returns a map from items[i] to i for each i.
+     * @throws IllegalArgumentException
+     *             if items contains duplicates
+     */
+    private static <T> Map<T, Integer> indexOf(T[] items) {
+        Map<T, Integer> result = new HashMap<>();
+        for (int i = 0; i < items.length; i++) {
+            if (items[i] == null) {
+                throw new NullPointerException(
+                        "Parameters cannot contain null.");
+            }
+            if (result.put(items[i], i) != null) {
+                throw new IllegalArgumentException(
+                        "Parameters cannot contain duplicates.");
+            }
+        }
+        return result;
+    }
+
+}
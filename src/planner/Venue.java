@@ -35,6 +35,8 @@ public class Venue {
     // the traffic that will be generated by hosting an event of maximum
     // size at the venue
     private Traffic capacityTraffic;
+    // the hash code of the venue (computed once, since venues are immutable)
+    private int hash;
 
     /*
      * invariant:
@@ -90,6 +92,7 @@ public class Venue {
         this.name = name;
         this.capacity = capacity;
         this.capacityTraffic = new Traffic(capacityTraffic);
+        this.hash = computeHashCode();
     }
 
     /**
@@ -166,6 +169,26 @@ public class Venue {
         return result;
     }
 
+    /**
+     * Returns true if the given venue is the same as this venue in everything
+     * but its name (i.e. it has the same capacity, and generates the same
+     * traffic for an event of maximum size), and false otherwise. Such venues
+     * can host exactly the same events, generating exactly the same traffic,
+     * so they can be swapped in any allocation.
+     * 
+     * @param other
+     *            the venue to compare with this venue
+     * @return true iff other has the same capacity as this venue, and its
+     *         capacity traffic is the same according to the sameTraffic()
+     *         method of the Traffic class
+     * @throws NullPointerException
+     *             if other is null
+     */
+    public boolean isInterchangeableWith(Venue other) {
+        return capacity == other.capacity && capacityTraffic.sameTraffic(
+                other.capacityTraffic);
+    }
+
     /**
      * The string representation of a venue is a string of the form <br>
      * <br>
@@ -205,29 +228,43 @@ public class Venue {
      */
     @Override
     public boolean equals(Object object) {
+        if (this == object) {
+            return true;
+        }
         if (!(object instanceof Venue)) {
             return false;
         }
         Venue other = (Venue) object; // the venue to compare
-        return (name.equals(other.name) && capacity == other.capacity
-                && capacityTraffic.sameTraffic(other.capacityTraffic));
+        // venues with different hash codes can't be equal
+        return (hash == other.hash && name.equals(other.name)
+                && capacity == other.capacity && capacityTraffic.sameTraffic(
+                        other.capacityTraffic));
     }
 
     @Override
     public int hashCode() {
+        return hash;
+    }
+
+    /**
+     * Returns the hash code of this venue, computed from its name, capacity
+     * and capacity traffic.
+     * 
+     * @require name != null && capacityTraffic != null
+     * @ensure Returns a hash code that depends only on name, capacity and the
+     *         traffic recorded by capacityTraffic.
+     */
+    private int computeHashCode() {
         /*
          * We create a polynomial hash-code based on name and capacity and
-         * capacityTraffic.
-         * 
-         * We will cheat a bit here and use the fact that traffic objects that
-         * are the same according to the sameTraffic method will produce the
-         * same string representation. There might be neater ways to do this.
+         * capacityTraffic. Traffic objects that are the same according to the
+         * sameTraffic method have the same structural hash code.
          */
         final int prime = 31; // an odd base prime
         int result = 1; // the hash code under construction
         result = prime * result + name.hashCode();
         result = prime * result + capacity;
-        result = prime * result + (capacityTraffic.toString()).hashCode();
+        result = prime * result + capacityTraffic.trafficHash();
         return result;
     }
 
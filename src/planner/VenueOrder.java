@@ -0,0 +1,28 @@
+package planner;
+
+/**
+ * The order in which an allocation search tries the venues that can host the
+ * event being allocated.
+ */
+public enum VenueOrder {
+
+    /**
+     * Venues are tried in the order in which they are given.
+     */
+    GIVEN,
+
+    /**
+     * Venues are tried in ascending order of capacity, so that the venue that
+     * fits the event most tightly is tried first and larger venues are kept
+     * free for larger events.
+     */
+    TIGHTEST_FIT_FIRST,
+
+    /**
+     * Venues are tried in ascending order of the highest corridor utilisation
+     * (traffic divided by corridor capacity) that hosting the event there
+     * would cause, given the traffic of the events already allocated.
+     */
+    LEAST_LOADED_FIRST
+
+}
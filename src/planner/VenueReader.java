@@ -328,8 +328,8 @@ public class VenueReader {
                 throw new FormatException("Line " + lineNumber
                         + ": invalid corridor.");
             }
-            return new Corridor(new Location(startName), new Location(endName),
-                    capacity);
+            // share one instance of each corridor between all venues
+            return CorridorRegistry.corridor(startName, endName, capacity);
         } finally {
             scanner.close();
         }
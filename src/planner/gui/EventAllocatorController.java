@@ -48,6 +48,7 @@ public class EventAllocatorController {
 		view.removeSelectedAllocationHandler(
 				new RemoveSelectedAllocationActionHandler());
 		view.computerAllocateHandler(new ComputerAllocateActionHandler());
+		view.forbidAllocationHandler(new ForbidAllocationActionHandler());
 		view.resetAllAllocationsHandler(
 				new ResetAllAllocationsActionHandler());
 		view.resetMenuItemHandler(new ResetMenuItemActionHandler());
@@ -203,10 +204,15 @@ public class EventAllocatorController {
 		public void handle(ActionEvent actionEvent) {
 			try {
 				// check if user want to continue
-				if (view.areYouSure("remove all current allocations!!\n"
-						+ "Then Computer will allocate!")) {
+				if (view.areYouSure("let the Computer allocate!!\n"
+						+ "Manual allocations will be kept and forbidden "
+						+ "allocations avoided.")) {
 					// call model's runAllocation() method
-					model.runAllocation();
+					if (!model.runAllocation()) {
+						view.displayError(new Exception(
+								"Computer could not find a safe allocation.\n"
+										+ "Current allocations are kept."));
+					}
 					// update GUI
 					view.printAllocations();
 					view.printCapacityTraffic();
@@ -222,6 +228,48 @@ public class EventAllocatorController {
 		}
 	}
 
+	/**
+	 * ForbidAllocationActionHandler an EventHandler class that handles
+	 * forbidAllocation Button of the View: forbids Auto-Allocation from
+	 * allocating the selected Event to the selected Venue, or permits it
+	 * again if it is already forbidden
+	 * 
+	 * @author arda
+	 *
+	 */
+	private class ForbidAllocationActionHandler
+			implements EventHandler<ActionEvent> {
+
+		@Override
+		public void handle(ActionEvent actionEvent) {
+			try {
+				Event event = view.getSelectedEvent();
+				Venue venue = view.getSelectedVenue();
+				if (event == null || venue == null) {
+					view.displayError(
+							new Exception("Please Select an Event and"
+									+ " Venue from the lists"));
+				} else if (model.isForbidden(event, venue)) {
+					// check if user want to permit it again
+					if (view.areYouSure("let Auto-Allocation allocate ("
+							+ event.getName() + ") to (" + venue.getName()
+							+ ") again!")) {
+						model.permitAllocation(event, venue);
+					}
+				} else {
+					// check if user want to forbid it
+					if (view.areYouSure("forbid Auto-Allocation from "
+							+ "allocating (" + event.getName() + ") to ("
+							+ venue.getName() + ")!")) {
+						model.forbidAllocation(event, venue);
+					}
+				}
+			} catch (Exception exception) {
+				view.displayError(exception);
+			}
+		}
+	}
+
 	/**
 	 * 
 	 * @author arda
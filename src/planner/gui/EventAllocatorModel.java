@@ -25,6 +25,13 @@ public class EventAllocatorModel {
 	private Set<Venue> venuesInUse;
 	// Set of all the allocations, for Print purposes
 	private Set<Map<Event, Venue>> allAllocations;
+	// Whether runAllocation keeps the current allocations where it can (on
+	// unless turned off)
+	private boolean incremental;
+	// Allocations made manually, which runAllocation keeps
+	private Map<Event, Venue> pinned;
+	// Venues that each Event must not be allocated by runAllocation
+	private Map<Event, Set<Venue>> forbidden;
 
 	/**
 	 * Initialises the model for the event allocator program.
@@ -34,9 +41,13 @@ public class EventAllocatorModel {
 		venuesInUse = new HashSet<>();
 		events = new ArrayList<>();
 		venues = new ArrayList<>();
-		capacityTraffic = new Traffic();
+		capacityTraffic = new DenseTraffic();
 		allocations = new HashMap<>();
 		allAllocations = new HashSet<>();
+		pinned = new HashMap<>();
+		forbidden = new HashMap<>();
+		// after an edit, only re-search around the edited event or venue
+		incremental = true;
 	}
 
 	/**
@@ -115,6 +126,7 @@ public class EventAllocatorModel {
 			if (allocations.keySet().contains(event)) {
 				removeFromAllocation(event, allocations.get(event));
 			}
+			forbidden.remove(event);
 		}
 	}
 
@@ -187,10 +199,16 @@ public class EventAllocatorModel {
 			if (allocations.containsValue(venue)) {
 				for (Event event : allocations.keySet()) {
 					if (allocations.get(event).equals(venue)) {
+						// a venue hosts at most one event, and removing it
+						// while iterating would break the iteration
 						removeFromAllocation(event, venue);
+						break;
 					}
 				}
 			}
+			for (Set<Venue> excluded : forbidden.values()) {
+				excluded.remove(venue);
+			}
 		}
 	}
 
@@ -202,6 +220,7 @@ public class EventAllocatorModel {
 		events = new ArrayList<>();
 		venuesInUse = new HashSet<>();
 		allAllocations = new HashSet<>();
+		forbidden = new HashMap<>();
 		resetAllAllocations();
 		clearTraffic();
 	}
@@ -227,30 +246,97 @@ public class EventAllocatorModel {
 	}
 
 	/**
-	 * Adds extraTraffic Traffic into this.capacityTraffic
+	 * Sets whether runAllocation keeps the current allocations where it can,
+	 * only placing the events left without a venue after an edit (and the
+	 * events around them), instead of allocating every event again. It does
+	 * so by default.
 	 * 
-	 * @param extraTraffic
+	 * @param incremental
+	 *            true to keep the current allocations where possible
+	 */
+	public void setIncrementalAllocation(boolean incremental) {
+		this.incremental = incremental;
+	}
+
+	/**
+	 * Returns true if runAllocation keeps the current allocations where it can
+	 * 
+	 * @return bool
+	 */
+	public boolean isIncrementalAllocation() {
+		return incremental;
+	}
+
+	/**
+	 * Forbids runAllocation from allocating Event to Venue
+	 * 
+	 * @param event
+	 *            Event object
+	 * @param venue
+	 *            Venue object
+	 */
+	public void forbidAllocation(Event event, Venue venue) {
+		forbidden.computeIfAbsent(event, key -> new HashSet<>()).add(venue);
+	}
+
+	/**
+	 * Allows runAllocation to allocate Event to Venue again
+	 * 
+	 * @param event
+	 *            Event object
+	 * @param venue
+	 *            Venue object
+	 */
+	public void permitAllocation(Event event, Venue venue) {
+		Set<Venue> excluded = forbidden.get(event);
+		if (excluded != null && excluded.remove(venue) && excluded.isEmpty()) {
+			forbidden.remove(event);
+		}
+	}
+
+	/**
+	 * Returns true if runAllocation is forbidden from allocating Event to
+	 * Venue
+	 * 
+	 * @param event
+	 *            Event object
+	 * @param venue
+	 *            Venue object
+	 * @return bool
 	 */
-	private void addTraffic(Traffic extraTraffic) {
-		capacityTraffic.addTraffic(extraTraffic);
+	public boolean isForbidden(Event event, Venue venue) {
+		Set<Venue> excluded = forbidden.get(event);
+		return excluded != null && excluded.contains(venue);
 	}
 
 	/**
-	 * Clears all previous allocations, executes Allocator.allocate() updates
-	 * this.capacityTraffic
+	 * Executes Allocator.reallocate() from the current allocations (or, if
+	 * incremental allocation is off, clears all previous allocations except
+	 * the manual ones and executes Allocator.allocate()) keeping the manual
+	 * allocations and avoiding the forbidden ones, updates
+	 * this.capacityTraffic. If there is no such allocation, the current
+	 * allocations are left as they are.
+	 * 
+	 * @return true if an allocation was found, false otherwise
 	 */
-	public void runAllocation() {
-		allocations = Allocator.allocate(events, venues);
-		if (allocations != null) {
+	public boolean runAllocation() {
+		Map<Event, Venue> result;
+		if (incremental) {
+			result = Allocator.reallocate(events, venues, allocations,
+					pinned, forbidden);
+		} else {
+			result = Allocator.allocate(events, venues, pinned, forbidden);
+		}
+		if (result != null) {
+			allocations = result;
 			System.out.println("hmm");
 			venuesInUse = new HashSet<>();
 			addVenuesInUse();
 			clearTraffic();
 			updateTraffic();
 			putAllocationsToSet();
-		} else {
-			allocations = new HashMap<>();
 		}
+		return result != null;
 	}
 
 	/**
@@ -316,7 +402,8 @@ public class EventAllocatorModel {
 	 */
 	public void updateTraffic() {
 		for (Event event : allocations.keySet()) {
-			this.addTraffic(allocations.get(event).getTraffic(event));
+			capacityTraffic.addTraffic(allocations.get(event).getTraffic(
+					event));
 		}
 	}
 
@@ -324,7 +411,7 @@ public class EventAllocatorModel {
 	 * Reset this.capacityTraffic
 	 */
 	public void clearTraffic() {
-		capacityTraffic = new Traffic();
+		capacityTraffic = new DenseTraffic();
 	}
 
 	/**
@@ -333,7 +420,7 @@ public class EventAllocatorModel {
 	 * @param extraTraffic
 	 */
 	public void clearTraffic(Traffic extraTraffic) {
-		capacityTraffic = new Traffic(extraTraffic);
+		capacityTraffic = new DenseTraffic(extraTraffic);
 	}
 
 	/**
@@ -355,13 +442,15 @@ public class EventAllocatorModel {
 		}
 		// check possibility of venu hosting that event
 		if (venue.canHost(event)) {
-			Traffic traffic = new Traffic(capacityTraffic);
+			Traffic traffic = new DenseTraffic(capacityTraffic);
 			traffic.addTraffic(venue.getTraffic(event));
 			if (traffic.isSafe()) {
 				// if all good update model with new allocation
-				capacityTraffic = new Traffic(traffic);
+				capacityTraffic = new DenseTraffic(traffic);
 				// add to allocations
 				allocations.put(event, venue);
+				// keep it when the computer allocates
+				pinned.put(event, venue);
 				// rezerve the venue
 				venuesInUse.add(venue);
 				// add to allocation set
@@ -394,6 +483,8 @@ public class EventAllocatorModel {
 				&& allocations.remove(event, venue)) {
 			// remove from rezerved venues
 			venuesInUse.remove(venue);
+			// no longer keep it when the computer allocates
+			pinned.remove(event, venue);
 			// remove from the allocations set
 			Map<Event, Venue> map = new HashMap<>();
 			map.put(event, venue);
@@ -462,13 +553,15 @@ public class EventAllocatorModel {
 	 *             may throw exception
 	 */
 	public void readAllocationFile(String fileName) throws Exception {
-		allocations = new HashMap<>();
-		allAllocations = new HashSet<>();
+		resetAllAllocations();
 		AllocationReader allocationReader = new AllocationReader();
 		Map<Event, Venue> map = allocationReader.read(fileName);
 		for (Event event : map.keySet()) {
 			addToAllocation(event, map.get(event));
 		}
+		// the file doesn't say which allocations were made manually, so
+		// runAllocation doesn't keep the loaded ones
+		pinned = new HashMap<>();
 	}
 
 	/**
@@ -477,6 +570,7 @@ public class EventAllocatorModel {
 	public void resetAllAllocations() {
 		allAllocations = new HashSet<>();
 		allocations = new HashMap<>();
+		pinned = new HashMap<>();
 		clearTraffic();
 		venuesInUse = new HashSet<>();
 	}
@@ -782,8 +876,9 @@ public class EventAllocatorModel {
 					throw new FormatException(
 							"Line " + lineNumber + ": invalid corridor.");
 				}
-				return new Corridor(new Location(startName),
-						new Location(endName), capacity);
+				// share one instance of each corridor between all venues
+				return CorridorRegistry.corridor(startName, endName,
+						capacity);
 			} finally {
 				scanner.close();
 			}
@@ -1018,24 +1113,39 @@ public class EventAllocatorModel {
 		 */
 		private void saveAllocations(PrintWriter allocationsWriter) {
 			for (Event event : allocations.keySet()) {
+				Venue venue = allocations.get(event);
 				// format of txt is similar to venue reader
 				// always convert problem to something you know how to solve...
 				allocationsWriter
 						.println(event.getName() + ":" + event.getSize());
-				allocationsWriter
-						.println(allocations.get(event).getName());
-				allocationsWriter
-						.println(allocations.get(event).getCapacity());
-				for (Corridor corridor : allocations.get(event)
-						.getTraffic(event).getCorridorsWithTraffic()) {
-					allocationsWriter.println(corridor.getStart().getName()
-							+ ", " + corridor.getEnd().getName() + ", "
-							+ corridor.getCapacity() + ": "
-							+ allocations.get(event).getTraffic(event)
-									.getTraffic(corridor));
+				allocationsWriter.println(venue.getName());
+				allocationsWriter.println(venue.getCapacity());
+				Traffic traffic = venue.getTraffic(event);
+				for (Corridor corridor : traffic.getCorridorsWithTraffic()) {
+					printCorridor(allocationsWriter, corridor, traffic
+							.getTraffic(corridor));
 				}
 				allocationsWriter.print("\n");
 			}
 		}
+
+		/**
+		 * Writes one corridor and its traffic to file
+		 * 
+		 * @format START, END, CAPACITY: TRAFFIC
+		 * 
+		 * @param writer
+		 *            PrintWriter obj
+		 * @param corridor
+		 *            Corridor object
+		 * @param traffic
+		 *            traffic on the corridor
+		 */
+		private void printCorridor(PrintWriter writer, Corridor corridor,
+				int traffic) {
+			writer.println(corridor.getStart().getName() + ", "
+					+ corridor.getEnd().getName() + ", "
+					+ corridor.getCapacity() + ": " + traffic);
+		}
 	}
 }
@@ -72,6 +72,7 @@ public class EventAllocatorView {
 	private Button resetAllAllocations;
 	private Button removeSelectedAllocation;
 	private Button computerAllocate;
+	private Button forbidAllocation;
 	private Button menuEvents;
 	private Button menuVenues;
 	private Button menuAllocations;
@@ -222,6 +223,7 @@ public class EventAllocatorView {
 		resetAllAllocations = new Button("Reset Allocations");
 		removeSelectedAllocation = new Button("Remove Allocation");
 		computerAllocate = new Button("Auto-Allocation");
+		forbidAllocation = new Button("Forbid / Permit");
 
 		// set attributes to TextFields
 		setAttributesTextField(eventName);
@@ -575,6 +577,7 @@ public class EventAllocatorView {
 			removeSelectedAllocation.setTextFill(Color.RED);
 			SetMenuButtonPro(resetAllAllocations, evenSmallFont);
 			resetAllAllocations.setTextFill(Color.RED);
+			SetMenuButtonPro(forbidAllocation, evenSmallFont);
 
 			// add allocations ListView and Label to topleft grid
 			topLeftGrid.add(allocationsLabel, 0, 0);
@@ -587,6 +590,7 @@ public class EventAllocatorView {
 			gridPane.add(computerAllocate, 0, 1);
 			gridPane.add(removeSelectedAllocation, 0, 2);
 			gridPane.add(resetAllAllocations, 0, 3);
+			gridPane.add(forbidAllocation, 0, 4);
 
 			// add grids to allocationsGridPane
 			allocationsGridPane.add(topLeftGrid, 0, 0);
@@ -1094,6 +1098,18 @@ public class EventAllocatorView {
 		computerAllocate.setOnAction(handler);
 	}
 
+	/**
+	 * EventAllocatorView.forbidAllocationHandler(EventHandler<ActionEvent>)
+	 * sets the forbidAllocation Buttons setOnAction as EventHandler
+	 * 
+	 * @param handler
+	 *            EventHandler<ActionEvent> from EventAllocatorController
+	 */
+	public void forbidAllocationHandler(
+			EventHandler<ActionEvent> handler) {
+		forbidAllocation.setOnAction(handler);
+	}
+
 	/**
 	 * EventAllocatorView.aboutMenuItemHandler(EventHandler<ActionEvent>) sets
 	 * the aboutMenuItem MenuItem's setOnAction as EventHandler
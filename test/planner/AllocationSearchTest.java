@@ -0,0 +1,106 @@
+package planner;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import org.junit.Test;
+
+/**
+ * Basic tests for the recording of failures by AllocationSearch when some
+ * venues are interchangeable.
+ */
+public class AllocationSearchTest {
+
+    /**
+     * Returns the given number of interchangeable venues of the given
+     * capacity, each of which puts the traffic of an event of their capacity
+     * on the given corridor.
+     */
+    private static List<Venue> copies(String name, int count, int capacity,
+            Corridor corridor) {
+        Traffic traffic = new Traffic();
+        traffic.updateTraffic(corridor, capacity);
+        List<Venue> result = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            result.add(new Venue(name + i, capacity, traffic));
+        }
+        return result;
+    }
+
+    /**
+     * Returns a search for an allocation of the given events to the given
+     * venues that breaks symmetry, skips dominated venues and records
+     * failures, as Allocator.allocate does.
+     */
+    private static AllocationSearch search(List<Event> events,
+            List<Venue> venues) {
+        AllocationSearch result = new AllocationSearch(events, venues,
+                EventOrder.GIVEN, VenueOrder.GIVEN);
+        result.setSymmetryBreaking();
+        result.setDominancePruning();
+        result.setNogoodBudget(1 << 20);
+        return result;
+    }
+
+    /**
+     * Five events of size 3 and two kinds of interchangeable venues, each
+     * kind on its own corridor of capacity 7: only two events fit on each
+     * corridor, so there is no safe allocation. Placing the first two events
+     * at one venue of each kind, in either order, leaves the same residual
+     * problem, so the second time it is reached it must be cut short by the
+     * failure recorded the first time.
+     */
+    @Test
+    public void testFailuresPruneInterchangeableVenues() {
+        Corridor first = new Corridor(new Location("a"), new Location("b"),
+                7);
+        Corridor second = new Corridor(new Location("c"), new Location("d"),
+                7);
+        List<Venue> venues = new ArrayList<>();
+        venues.addAll(copies("first", 4, 3, first));
+        venues.addAll(copies("second", 4, 3, second));
+        List<Event> events = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            events.add(new Event("e" + i, 3));
+        }
+        AllocationSearch search = search(events, venues);
+        assertNull(search.firstAllocation());
+        assertTrue(search.getNogoodHits() > 0);
+    }
+
+    /**
+     * The events of the previous test, with one more venue of the second kind
+     * on a corridor of its own, so that there is a safe allocation: the
+     * failures recorded on the way must not stop the search from finding it.
+     */
+    @Test
+    public void testFailuresKeepSafeAllocations() {
+        Corridor first = new Corridor(new Location("a"), new Location("b"),
+                7);
+        Corridor second = new Corridor(new Location("c"), new Location("d"),
+                7);
+        Corridor third = new Corridor(new Location("e"), new Location("f"),
+                3);
+        List<Venue> venues = new ArrayList<>();
+        venues.addAll(copies("first", 4, 3, first));
+        venues.addAll(copies("second", 4, 3, second));
+        venues.addAll(copies("third", 1, 3, third));
+        List<Event> events = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            events.add(new Event("e" + i, 3));
+        }
+        Map<Event, Venue> allocation = search(events, venues)
+                .firstAllocation();
+        assertNotNull(allocation);
+        assertEquals(new HashSet<>(events), allocation.keySet());
+        assertEquals(events.size(), new HashSet<>(allocation.values())
+                .size());
+        Traffic traffic = new Traffic();
+        for (Event event : events) {
+            traffic.addTraffic(allocation.get(event).getTraffic(event));
+        }
+        assertTrue(traffic.isSafe());
+    }
+
+}
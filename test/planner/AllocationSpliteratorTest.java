@@ -0,0 +1,89 @@
+package planner;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+/**
+ * Checks the lazy iterator and streams over the safe allocations against
+ * every safe allocation of small random instances.
+ */
+public class AllocationSpliteratorTest {
+
+    // the number of random instances each test is checked on
+    private final static int INSTANCES = 200;
+
+    /**
+     * The iterator and the sequential and parallel streams each return every
+     * safe allocation exactly once.
+     */
+    @Test
+    public void testVisitsEverySafeAllocationOnce() {
+        Random random = new Random(11);
+        for (int i = 0; i < INSTANCES; i++) {
+            RandomInstance instance = new RandomInstance(random, 6, 7);
+            Set<Map<Event, Venue>> expected = instance.safeAllocations();
+
+            List<Map<Event, Venue>> iterated = new ArrayList<>();
+            Allocator.allocationIterator(instance.events, instance.venues)
+                    .forEachRemaining(iterated::add);
+            checkAllocations(instance, expected, iterated);
+            checkAllocations(instance, expected, Allocator.allocationStream(
+                    instance.events, instance.venues).collect(Collectors
+                            .toList()));
+            checkAllocations(instance, expected, Allocator.allocationStream(
+                    instance.events, instance.venues).parallel().collect(
+                            Collectors.toList()));
+        }
+    }
+
+    /**
+     * Splitting the spliterator at random points, some of them part way
+     * through, shares the safe allocations out between the parts without
+     * losing or repeating any.
+     */
+    @Test
+    public void testSplitsShareOutSafeAllocations() {
+        Random random = new Random(12);
+        for (int i = 0; i < INSTANCES; i++) {
+            RandomInstance instance = new RandomInstance(random, 6, 7);
+            List<Map<Event, Venue>> visited = new ArrayList<>();
+            List<Spliterator<Map<Event, Venue>>> parts = new ArrayList<>();
+            parts.add(new AllocationSpliterator(instance.events,
+                    instance.venues, EventOrder.GIVEN, VenueOrder.GIVEN,
+                    false));
+            for (int j = 0; j < 6; j++) {
+                Spliterator<Map<Event, Venue>> part = parts.get(random
+                        .nextInt(parts.size()));
+                if (random.nextBoolean()) {
+                    part.tryAdvance(visited::add);
+                }
+                Spliterator<Map<Event, Venue>> split = part.trySplit();
+                if (split != null) {
+                    parts.add(split);
+                }
+            }
+            for (Spliterator<Map<Event, Venue>> part : parts) {
+                part.forEachRemaining(visited::add);
+            }
+            checkAllocations(instance, instance.safeAllocations(), visited);
+        }
+    }
+
+    /**
+     * Checks that allocations contains each of the expected allocations of
+     * instance exactly once, and nothing else.
+     */
+    private static void checkAllocations(RandomInstance instance,
+            Set<Map<Event, Venue>> expected,
+            List<Map<Event, Venue>> allocations) {
+        assertEquals(instance.toString(), expected.size(), allocations
+                .size());
+        assertEquals(instance.toString(), expected, new HashSet<>(
+                allocations));
+    }
+
+}
@@ -0,0 +1,119 @@
+package planner;
+
+import static org.junit.Assert.*;
+
+import java.math.BigInteger;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+/**
+ * Checks the searches of Allocator against every safe allocation of small
+ * random instances.
+ */
+public class AllocatorTest {
+
+    // the number of random instances each test is checked on
+    private final static int INSTANCES = 200;
+
+    /**
+     * countAllocations returns the number of safe allocations.
+     */
+    @Test
+    public void testCountsEverySafeAllocation() {
+        Random random = new Random(12);
+        for (int i = 0; i < INSTANCES; i++) {
+            RandomInstance instance = new RandomInstance(random, 6, 7);
+            assertEquals(instance.toString(), BigInteger.valueOf(instance
+                    .safeAllocations().size()), Allocator.countAllocations(
+                            instance.events, instance.venues));
+        }
+    }
+
+    /**
+     * Eight events and fourteen venues that can host any of them without
+     * traffic have 14!/6! safe allocations, too many to list, which the
+     * counting memo must count without visiting each of them.
+     */
+    @Test
+    public void testCountsWithoutListing() {
+        List<Event> events = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            events.add(new Event("e" + i, 1 + i));
+        }
+        List<Venue> venues = new ArrayList<>();
+        for (int i = 0; i < 14; i++) {
+            venues.add(new Venue("v" + i, 20, new Traffic()));
+        }
+        BigInteger expected = BigInteger.ONE;
+        for (int i = 7; i <= 14; i++) {
+            expected = expected.multiply(BigInteger.valueOf(i));
+        }
+        assertEquals(expected, Allocator.countAllocations(events, venues));
+    }
+
+    /**
+     * With time to finish, the timed search reports OPTIMAL with a safe
+     * allocation exactly when there is one, and INFEASIBLE otherwise.
+     */
+    @Test
+    public void testTimedSearchFinishes() {
+        Random random = new Random(19);
+        for (int i = 0; i < INSTANCES; i++) {
+            RandomInstance instance = new RandomInstance(random, 6, 7);
+            boolean satisfiable = !instance.safeAllocations().isEmpty();
+            for (EventOrder eventOrder : EventOrder.values()) {
+                AllocationResult result = Allocator.allocate(instance.events,
+                        instance.venues, eventOrder, VenueOrder.GIVEN,
+                        Duration.ofDays(1), new AtomicBoolean());
+                if (satisfiable) {
+                    assertEquals(instance.toString(),
+                            AllocationStatus.OPTIMAL, result.getStatus());
+                    assertTrue(instance.toString(), instance.isSafe(result
+                            .getAllocation()));
+                } else {
+                    assertEquals(instance.toString(),
+                            AllocationStatus.INFEASIBLE, result.getStatus());
+                }
+            }
+        }
+    }
+
+    /**
+     * A search that is cancelled before it starts either still reaches the
+     * same answer as an uncancelled search or reports TIMEOUT with a safe
+     * partial allocation. The instances are larger than in the other tests,
+     * so that some searches run long enough to notice the cancellation.
+     */
+    @Test
+    public void testCancelledSearchKeepsPartialAllocationSafe() {
+        Random random = new Random(20);
+        int timeouts = 0; // the number of searches that gave up
+        for (int i = 0; i < INSTANCES; i++) {
+            RandomInstance instance = new RandomInstance(random, 30, 34);
+            AllocationResult result = Allocator.allocate(instance.events,
+                    instance.venues, Duration.ofSeconds(Long.MAX_VALUE),
+                    new AtomicBoolean(true));
+            switch (result.getStatus()) {
+            case OPTIMAL:
+                assertTrue(instance.toString(), instance.isSafe(result
+                        .getAllocation()));
+                break;
+            case INFEASIBLE:
+                assertNull(instance.toString(), Allocator.allocate(
+                        instance.events, instance.venues));
+                break;
+            default:
+                assertEquals(AllocationStatus.TIMEOUT, result.getStatus());
+                assertFalse(result.isComplete());
+                assertTrue(instance.toString(), instance.isSafePart(result
+                        .getAllocation()));
+                timeouts++;
+            }
+        }
+        assertTrue(timeouts > 0);
+    }
+
+}
@@ -0,0 +1,64 @@
+package planner;
+
+import static org.junit.Assert.*;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+/**
+ * Checks the local search against every safe allocation of small random
+ * instances.
+ */
+public class LocalSearchTest {
+
+    // the number of random instances the test is checked on
+    private final static int INSTANCES = 100;
+    // the time the local search is given on each instance
+    private final static Duration TIME_LIMIT = Duration.ofMillis(20);
+
+    /**
+     * The local search only reports a safe allocation, only reports
+     * INFEASIBLE when there is no safe allocation, and otherwise reports a
+     * safe part of an allocation with some traffic above capacity. It is also
+     * expected to solve nearly all of the satisfiable instances in the time
+     * it is given.
+     */
+    @Test
+    public void testResultsAgreeWithExhaustiveSearch() {
+        Random random = new Random(21);
+        int satisfiable = 0; // the number of instances with a safe allocation
+        int solved = 0; // the number of those solved by the local search
+        for (int i = 0; i < INSTANCES; i++) {
+            RandomInstance instance = new RandomInstance(random, 6, 7);
+            boolean hasSafe = !instance.safeAllocations().isEmpty();
+            AllocationResult result = Allocator.allocateByLocalSearch(
+                    instance.events, instance.venues, TIME_LIMIT,
+                    new AtomicBoolean(), i);
+            switch (result.getStatus()) {
+            case OPTIMAL:
+                assertTrue(instance.toString(), instance.isSafe(result
+                        .getAllocation()));
+                assertEquals(0, result.getViolation());
+                solved++;
+                break;
+            case INFEASIBLE:
+                assertFalse(instance.toString(), hasSafe);
+                break;
+            default:
+                assertEquals(AllocationStatus.TIMEOUT, result.getStatus());
+                assertTrue(instance.toString(), instance.isSafePart(result
+                        .getAllocation()));
+                assertTrue(result.getViolation() > 0);
+            }
+            if (hasSafe) {
+                satisfiable++;
+            }
+        }
+        assertTrue(solved + " of " + satisfiable, solved * 10
+                >= satisfiable * 9);
+    }
+
+}
@@ -0,0 +1,67 @@
+package planner;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import org.junit.Test;
+
+/**
+ * Checks the branch-and-bound optimisation against the best of every safe
+ * allocation of small random instances.
+ */
+public class ObjectiveTest {
+
+    // the number of random instances each test is checked on
+    private final static int INSTANCES = 100;
+    // the largest difference between values that are taken to be equal
+    private final static double TOLERANCE = 1e-9;
+
+    /**
+     * The objectives to check: the standard ones, largeVenues, and a total
+     * cost that depends on the names of events and venues, so that
+     * interchangeable events or venues can cost different amounts.
+     */
+    private final static Objective[] OBJECTIVES = { Objective.PEAK_UTILISATION,
+            Objective.WASTED_CAPACITY, Objective.largeVenues(10), Objective
+                    .totalCost((event, venue) -> (event.getName().hashCode()
+                            ^ venue.getName().hashCode()) & 7) };
+
+    /**
+     * For every objective and ordering, optimise returns a safe allocation
+     * with the lowest value of any safe allocation if there is one, and null
+     * otherwise.
+     */
+    @Test
+    public void testOptimiseFindsLowestValue() {
+        Random random = new Random(21);
+        for (int i = 0; i < INSTANCES; i++) {
+            RandomInstance instance = new RandomInstance(random, 6, 7);
+            Set<Map<Event, Venue>> expected = instance.safeAllocations();
+            for (Objective objective : OBJECTIVES) {
+                double lowest = Double.POSITIVE_INFINITY;
+                for (Map<Event, Venue> allocation : expected) {
+                    lowest = Math.min(lowest, objective.valueOf(allocation));
+                }
+                for (EventOrder eventOrder : EventOrder.values()) {
+                    for (VenueOrder venueOrder : VenueOrder.values()) {
+                        Map<Event, Venue> allocation = Allocator.optimise(
+                                instance.events, instance.venues, objective,
+                                eventOrder, venueOrder);
+                        if (expected.isEmpty()) {
+                            assertNull(instance.toString(), allocation);
+                        } else {
+                            assertNotNull(instance.toString(), allocation);
+                            assertTrue(instance.toString(), instance.isSafe(
+                                    allocation));
+                            assertEquals(instance.toString(), lowest,
+                                    objective.valueOf(allocation),
+                                    TOLERANCE);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+}
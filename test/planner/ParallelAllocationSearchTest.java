@@ -0,0 +1,84 @@
+package planner;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+/**
+ * Checks the parallel allocation search against every safe allocation of
+ * small random instances.
+ */
+public class ParallelAllocationSearchTest {
+
+    // the number of random instances each test is checked on
+    private final static int INSTANCES = 200;
+
+    /**
+     * The parallel search, without splitting into components, finds a safe
+     * allocation exactly when there is one, for every ordering.
+     */
+    @Test
+    public void testFindsAllocationIffThereIsOne() {
+        Random random = new Random(5);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int i = 0; i < INSTANCES; i++) {
+                RandomInstance instance = new RandomInstance(random, 6, 7);
+                boolean satisfiable = !instance.safeAllocations().isEmpty();
+                for (EventOrder eventOrder : EventOrder.values()) {
+                    for (VenueOrder venueOrder : VenueOrder.values()) {
+                        Map<Event, Venue> allocation = pool.invoke(
+                                new ParallelAllocationSearch(instance.events,
+                                        instance.venues, eventOrder,
+                                        venueOrder));
+                        checkAllocation(instance, satisfiable, allocation);
+                    }
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Allocator.allocateParallel, which also splits the problem into
+     * independent components, agrees with the sequential search on whether
+     * there is a safe allocation, and returns a safe one if there is.
+     */
+    @Test
+    public void testAllocateParallelAgreesWithSequential() {
+        Random random = new Random(6);
+        for (int i = 0; i < INSTANCES; i++) {
+            RandomInstance instance = new RandomInstance(random, 6, 7);
+            boolean satisfiable = !instance.safeAllocations().isEmpty();
+            assertEquals(instance.toString(), satisfiable, Allocator
+                    .allocate(instance.events, instance.venues) != null);
+            for (EventOrder eventOrder : EventOrder.values()) {
+                for (VenueOrder venueOrder : VenueOrder.values()) {
+                    checkAllocation(instance, satisfiable,
+                            Allocator.allocateParallel(instance.events,
+                                    instance.venues, eventOrder,
+                                    venueOrder));
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks that allocation is a safe allocation of instance if satisfiable,
+     * and null otherwise.
+     */
+    private static void checkAllocation(RandomInstance instance,
+            boolean satisfiable, Map<Event, Venue> allocation) {
+        if (satisfiable) {
+            assertNotNull(instance.toString(), allocation);
+            assertTrue(instance.toString(), instance.isSafe(allocation));
+        } else {
+            assertNull(instance.toString(), allocation);
+        }
+    }
+
+}
@@ -0,0 +1,97 @@
+package planner;
+
+import static org.junit.Assert.*;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+
+/**
+ * Checks the portfolio of strategies against every safe allocation of small
+ * random instances.
+ */
+public class PortfolioTest {
+
+    // the number of random instances the test is checked on
+    private final static int INSTANCES = 100;
+    // the time each strategy is given on each instance
+    private final static Duration TIME_LIMIT = Duration.ofSeconds(5);
+
+    /**
+     * The standard portfolio gives a definitive answer on every instance:
+     * OPTIMAL with a safe allocation if there is one, and INFEASIBLE
+     * otherwise, and a win is counted for each race.
+     */
+    @Test
+    public void testStandardAgreesWithExhaustiveSearch() {
+        Random random = new Random(22);
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            Portfolio portfolio = Portfolio.standard(executor);
+            for (int i = 0; i < INSTANCES; i++) {
+                RandomInstance instance = new RandomInstance(random, 6, 7);
+                AllocationResult result = portfolio.allocate(instance.events,
+                        instance.venues, TIME_LIMIT);
+                if (instance.safeAllocations().isEmpty()) {
+                    assertEquals(instance.toString(),
+                            AllocationStatus.INFEASIBLE, result.getStatus());
+                } else {
+                    assertEquals(instance.toString(),
+                            AllocationStatus.OPTIMAL, result.getStatus());
+                    assertTrue(instance.toString(), instance.isSafe(result
+                            .getAllocation()));
+                }
+            }
+            long races = 0; // the total number of races won
+            for (long wins : portfolio.getWins().values()) {
+                races += wins;
+            }
+            assertEquals(INSTANCES, races);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * A strategy that throws an exception drops out of the race without
+     * stopping the others, and if every strategy throws, allocate throws an
+     * IllegalStateException caused by one of their exceptions.
+     */
+    @Test
+    public void testFailingStrategiesDropOut() {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            RuntimeException failure = new RuntimeException("failed");
+            Portfolio portfolio = new Portfolio(executor);
+            portfolio.addStrategy("failing", (events, venues, timeLimit,
+                    cancelled) -> {
+                throw failure;
+            });
+            List<Event> events = Arrays.asList(new Event("e", 1));
+            List<Venue> venues = Arrays.asList(new Venue("v", 1,
+                    new Traffic()));
+            try {
+                portfolio.allocate(events, venues, TIME_LIMIT);
+                fail("every strategy failed");
+            } catch (IllegalStateException e) {
+                assertEquals(failure, e.getCause());
+            }
+
+            portfolio.addStrategy("exhaustive", Allocator::allocate);
+            AllocationResult result = portfolio.allocate(events, venues,
+                    TIME_LIMIT);
+            assertEquals(AllocationStatus.OPTIMAL, result.getStatus());
+            assertEquals(Collections.singletonMap(events.get(0), venues.get(
+                    0)), result.getAllocation());
+            assertEquals(Long.valueOf(1), portfolio.getWins().get(
+                    "exhaustive"));
+            assertEquals(Long.valueOf(0), portfolio.getWins().get("failing"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+}
@@ -0,0 +1,131 @@
+package planner;
+
+import java.util.*;
+
+/**
+ * A small random allocation problem, with every safe allocation of it found
+ * by trying every assignment of events to venues, against which the
+ * allocation searches can be checked.
+ */
+class RandomInstance {
+
+    // the events to allocate
+    final List<Event> events;
+    // the venues to allocate them to
+    final List<Venue> venues;
+
+    /**
+     * Creates a random instance of at most maxEvents events and maxVenues
+     * venues on a handful of corridors. Some venues are copies of each other
+     * under another name, and events and venues are drawn from few names and
+     * sizes, so that there are interchangeable items.
+     *
+     * @require random != null && maxEvents > 0 && maxVenues > 0
+     */
+    RandomInstance(Random random, int maxEvents, int maxVenues) {
+        int locations = 3 + random.nextInt(4);
+        List<Corridor> corridors = new ArrayList<>();
+        int corridorCount = 2 + random.nextInt(5);
+        for (int i = 0; i < corridorCount; i++) {
+            int start = random.nextInt(locations);
+            int end = (start + 1 + random.nextInt(locations - 1)) % locations;
+            corridors.add(new Corridor(new Location("l" + start),
+                    new Location("l" + end), 5 + random.nextInt(25)));
+        }
+        Set<Event> events = new LinkedHashSet<>();
+        int range = random.nextBoolean() ? 20 : 4;
+        int eventCount = 1 + random.nextInt(maxEvents);
+        for (int i = 0; i < eventCount; i++) {
+            events.add(new Event("e" + random.nextInt(4),
+                    1 + random.nextInt(range)));
+        }
+        Set<Venue> venues = new LinkedHashSet<>();
+        int venueCount = 1 + random.nextInt(maxVenues);
+        for (int i = 0; i < venueCount; i++) {
+            int capacity = 1 + random.nextInt(20);
+            Traffic traffic = new Traffic();
+            for (Corridor corridor : corridors) {
+                // equal corridors are only given traffic once
+                if (random.nextInt(3) == 0
+                        && traffic.getTraffic(corridor) == 0) {
+                    traffic.updateTraffic(corridor, 1 + random.nextInt(
+                            Math.min(capacity, corridor.getCapacity())));
+                }
+            }
+            venues.add(new Venue("v" + random.nextInt(5), capacity, traffic));
+            if (random.nextInt(3) == 0) {
+                venues.add(new Venue("w" + i, capacity, traffic));
+            }
+        }
+        this.events = new ArrayList<>(events);
+        this.venues = new ArrayList<>(venues);
+    }
+
+    /**
+     * Returns every safe allocation of the events to the venues, found by
+     * trying every assignment of distinct venues to the events.
+     */
+    Set<Map<Event, Venue>> safeAllocations() {
+        Set<Map<Event, Venue>> result = new HashSet<>();
+        addSafeAllocations(new HashMap<>(), result);
+        return result;
+    }
+
+    /**
+     * Returns true if allocation is a safe allocation of all the events to
+     * distinct venues of this instance that can host them.
+     */
+    boolean isSafe(Map<Event, Venue> allocation) {
+        return allocation.keySet().equals(new HashSet<>(events))
+                && isSafePart(allocation);
+    }
+
+    /**
+     * Returns true if allocation is a safe allocation of some of the events
+     * to distinct venues of this instance that can host them.
+     */
+    boolean isSafePart(Map<Event, Venue> allocation) {
+        if (!events.containsAll(allocation.keySet())
+                || !venues.containsAll(allocation.values())
+                || new HashSet<>(allocation.values()).size() != allocation
+                        .size()) {
+            return false;
+        }
+        Traffic traffic = new Traffic();
+        for (Map.Entry<Event, Venue> entry : allocation.entrySet()) {
+            if (!entry.getValue().canHost(entry.getKey())) {
+                return false;
+            }
+            traffic.addTraffic(entry.getValue().getTraffic(entry.getKey()));
+        }
+        return traffic.isSafe();
+    }
+
+    /**
+     * Adds to result every safe allocation that extends the given allocation
+     * of the first events.
+     */
+    private void addSafeAllocations(Map<Event, Venue> allocation,
+            Set<Map<Event, Venue>> result) {
+        if (allocation.size() == events.size()) {
+            if (isSafePart(allocation)) {
+                result.add(new HashMap<>(allocation));
+            }
+            return;
+        }
+        Event event = events.get(allocation.size());
+        for (Venue venue : venues) {
+            if (venue.canHost(event) && !allocation.containsValue(venue)) {
+                allocation.put(event, venue);
+                addSafeAllocations(allocation, result);
+                allocation.remove(event);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return events + " to " + venues;
+    }
+
+}
@@ -0,0 +1,192 @@
+package planner;
+
+import static org.junit.Assert.*;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+/**
+ * Checks the SAT solver, and the SAT search built on it, against exhaustive
+ * search.
+ */
+public class SatSolverTest {
+
+    // the number of random instances each test is checked on
+    private final static int INSTANCES = 200;
+    // the number of instances too large for the exhaustive fallback that
+    // allocateBySat is checked on
+    private final static int LARGE_INSTANCES = 40;
+
+    /**
+     * On small random sets of clauses and linear constraints, the solver
+     * finds a solution exactly when trying every assignment finds one, and
+     * the solution it finds satisfies every constraint.
+     */
+    @Test
+    public void testSolverAgreesWithEveryAssignment() {
+        Random random = new Random(25);
+        for (int i = 0; i < INSTANCES; i++) {
+            int variables = 1 + random.nextInt(10);
+            List<int[]> clauses = new ArrayList<>();
+            int clauseCount = random.nextInt(4 * variables);
+            for (int j = 0; j < clauseCount; j++) {
+                int[] clause = new int[1 + random.nextInt(3)];
+                for (int k = 0; k < clause.length; k++) {
+                    clause[k] = SatSolver.literal(random.nextInt(variables),
+                            random.nextBoolean());
+                }
+                clauses.add(clause);
+            }
+            List<int[]> linearVariables = new ArrayList<>();
+            List<int[]> linearWeights = new ArrayList<>();
+            List<Integer> linearLimits = new ArrayList<>();
+            int linearCount = random.nextInt(3);
+            for (int j = 0; j < linearCount; j++) {
+                List<Integer> shuffled = new ArrayList<>();
+                for (int x = 0; x < variables; x++) {
+                    shuffled.add(x);
+                }
+                Collections.shuffle(shuffled, random);
+                int[] terms = new int[1 + random.nextInt(variables)];
+                int[] weights = new int[terms.length];
+                for (int k = 0; k < terms.length; k++) {
+                    terms[k] = shuffled.get(k);
+                    weights[k] = 1 + random.nextInt(5);
+                }
+                linearVariables.add(terms);
+                linearWeights.add(weights);
+                linearLimits.add(random.nextInt(8));
+            }
+
+            SatSolver solver = new SatSolver();
+            for (int x = 0; x < variables; x++) {
+                solver.newVariable(random.nextBoolean(), random.nextInt(3));
+            }
+            for (int[] clause : clauses) {
+                solver.addClause(clause);
+            }
+            for (int j = 0; j < linearCount; j++) {
+                solver.addLinear(linearVariables.get(j), linearWeights.get(j),
+                        linearLimits.get(j));
+            }
+            boolean satisfiable = false; // whether some assignment satisfies
+            for (int bits = 0; bits < 1 << variables && !satisfiable;
+                    bits++) {
+                boolean[] values = new boolean[variables];
+                for (int x = 0; x < variables; x++) {
+                    values[x] = (bits >> x & 1) != 0;
+                }
+                satisfiable = satisfies(values, clauses, linearVariables,
+                        linearWeights, linearLimits);
+            }
+
+            Boolean solved = solver.solve(new AtomicBoolean(), System
+                    .nanoTime(), Long.MAX_VALUE);
+            assertEquals(Boolean.valueOf(satisfiable), solved);
+            if (satisfiable) {
+                boolean[] values = new boolean[variables];
+                for (int x = 0; x < variables; x++) {
+                    values[x] = solver.isTrue(x);
+                }
+                assertTrue(satisfies(values, clauses, linearVariables,
+                        linearWeights, linearLimits));
+            }
+        }
+    }
+
+    /**
+     * On small random instances, the SAT search reports OPTIMAL with a safe
+     * allocation exactly when there is one, and INFEASIBLE otherwise.
+     */
+    @Test
+    public void testSearchAgreesWithExhaustiveSearch() {
+        Random random = new Random(26);
+        for (int i = 0; i < INSTANCES; i++) {
+            RandomInstance instance = new RandomInstance(random, 6, 7);
+            boolean satisfiable = !instance.safeAllocations().isEmpty();
+            SatSearch search = SatSearch.create(new TrafficTable(
+                    instance.events, instance.venues));
+            if (search == null) {
+                assertFalse(instance.toString(), satisfiable);
+                continue;
+            }
+            AllocationResult result = search.run(new AtomicBoolean(), System
+                    .nanoTime(), Long.MAX_VALUE);
+            if (satisfiable) {
+                assertEquals(instance.toString(), AllocationStatus.OPTIMAL,
+                        result.getStatus());
+                assertTrue(instance.toString(), instance.isSafe(result
+                        .getAllocation()));
+            } else {
+                assertEquals(instance.toString(),
+                        AllocationStatus.INFEASIBLE, result.getStatus());
+            }
+        }
+    }
+
+    /**
+     * On instances large enough for allocateBySat to use the SAT solver, it
+     * returns a safe allocation or shows that there is none, agreeing with
+     * the exhaustive search.
+     */
+    @Test
+    public void testAllocateBySatAgreesWithAllocate() {
+        Random random = new Random(27);
+        int solved = 0; // the number of instances large enough for SAT
+        while (solved < LARGE_INSTANCES) {
+            RandomInstance instance = new RandomInstance(random, 12, 24);
+            if ((long) instance.events.size() * instance.venues
+                    .size() <= Allocator.SAT_THRESHOLD) {
+                continue;
+            }
+            solved++;
+            AllocationResult result = Allocator.allocateBySat(instance.events,
+                    instance.venues, Duration.ofSeconds(10),
+                    new AtomicBoolean());
+            if (result.getStatus() == AllocationStatus.OPTIMAL) {
+                assertTrue(instance.toString(), instance.isSafe(result
+                        .getAllocation()));
+            } else {
+                assertEquals(instance.toString(),
+                        AllocationStatus.INFEASIBLE, result.getStatus());
+                assertNull(instance.toString(), Allocator.allocate(
+                        instance.events, instance.venues));
+            }
+        }
+    }
+
+    /**
+     * Returns true if the given values of the variables satisfy every one of
+     * the given clauses and linear constraints.
+     */
+    private static boolean satisfies(boolean[] values, List<int[]> clauses,
+            List<int[]> linearVariables, List<int[]> linearWeights,
+            List<Integer> linearLimits) {
+        for (int[] clause : clauses) {
+            boolean satisfied = false; // whether some literal is true
+            for (int literal : clause) {
+                satisfied = satisfied || values[literal / 2] == (literal
+                        % 2 == 0);
+            }
+            if (!satisfied) {
+                return false;
+            }
+        }
+        for (int j = 0; j < linearVariables.size(); j++) {
+            int total = 0; // the total weight of the true variables
+            for (int k = 0; k < linearVariables.get(j).length; k++) {
+                if (values[linearVariables.get(j)[k]]) {
+                    total += linearWeights.get(j)[k];
+                }
+            }
+            if (total > linearLimits.get(j)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
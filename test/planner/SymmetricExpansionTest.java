@@ -0,0 +1,64 @@
+package planner;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+/**
+ * Checks symmetry breaking and the expansion of distinct allocations against
+ * every safe allocation of small random instances.
+ */
+public class SymmetricExpansionTest {
+
+    // the number of random instances each test is checked on
+    private final static int INSTANCES = 200;
+
+    /**
+     * Expanding each distinct allocation by swapping interchangeable events
+     * and venues gives every safe allocation exactly once, so no two distinct
+     * allocations are the same up to such swaps.
+     */
+    @Test
+    public void testExpansionGivesEverySafeAllocationOnce() {
+        Random random = new Random(16);
+        for (int i = 0; i < INSTANCES; i++) {
+            RandomInstance instance = new RandomInstance(random, 6, 7);
+            Set<Map<Event, Venue>> expected = instance.safeAllocations();
+            List<Map<Event, Venue>> distinct = Allocator
+                    .distinctAllocationStream(instance.events,
+                            instance.venues).collect(Collectors.toList());
+            assertTrue(instance.toString(), expected.containsAll(distinct));
+            List<Map<Event, Venue>> expanded = distinct.stream().flatMap(
+                    allocation -> Allocator.symmetricAllocations(allocation,
+                            instance.venues)).collect(Collectors.toList());
+            assertEquals(instance.toString(), expected.size(), expanded
+                    .size());
+            assertEquals(instance.toString(), expected, new HashSet<>(
+                    expanded));
+        }
+    }
+
+    /**
+     * The first-solution search, which breaks symmetry, finds a safe
+     * allocation exactly when there is one.
+     */
+    @Test
+    public void testSymmetryBreakingKeepsSafeAllocations() {
+        Random random = new Random(17);
+        for (int i = 0; i < INSTANCES; i++) {
+            RandomInstance instance = new RandomInstance(random, 6, 7);
+            boolean satisfiable = !instance.safeAllocations().isEmpty();
+            AllocationSearch search = new AllocationSearch(instance.events,
+                    instance.venues, EventOrder.GIVEN, VenueOrder.GIVEN);
+            search.setSymmetryBreaking();
+            Map<Event, Venue> allocation = search.firstAllocation();
+            assertEquals(instance.toString(), satisfiable, allocation != null);
+            assertTrue(instance.toString(), !satisfiable || instance.isSafe(
+                    allocation));
+        }
+    }
+
+}
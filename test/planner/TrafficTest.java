@@ -0,0 +1,88 @@
+package planner;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import org.junit.Test;
+
+/**
+ * Checks the structural hash of Traffic and DenseTraffic, which venues use
+ * for their hash codes.
+ */
+public class TrafficTest {
+
+    /**
+     * Traffic and DenseTraffic objects built by random updates have the same
+     * traffic hash whenever they are the same according to sameTraffic,
+     * including after further updates to objects that were already hashed.
+     */
+    @Test
+    public void testSameTrafficHasSameHash() {
+        Random random = new Random(10);
+        List<Corridor> corridors = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            corridors.add(new Corridor(new Location("a" + i),
+                    new Location("b" + i), 10));
+        }
+        List<Traffic> traffics = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            traffics.add(i % 2 == 0 ? new Traffic() : new DenseTraffic());
+        }
+        for (int round = 0; round < 20; round++) {
+            for (Traffic traffic : traffics) {
+                Corridor corridor = corridors.get(random.nextInt(corridors
+                        .size()));
+                if (random.nextBoolean()) {
+                    traffic.updateTraffic(corridor, 1);
+                } else if (traffic.getTraffic(corridor) > 0) {
+                    traffic.updateTraffic(corridor, -1);
+                } else {
+                    Traffic extra = new Traffic();
+                    extra.updateTraffic(corridor, 2);
+                    traffic.addTraffic(extra);
+                }
+            }
+            for (Traffic first : traffics) {
+                for (Traffic second : traffics) {
+                    if (first.sameTraffic(second)) {
+                        assertEquals(first.trafficHash(), second
+                                .trafficHash());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Venues with the same name, capacity and traffic are equal and have the
+     * same hash code, whichever kind of Traffic they were created from, and
+     * later changes to that traffic change neither.
+     */
+    @Test
+    public void testEqualVenuesHaveEqualHashCodes() {
+        Corridor corridor = new Corridor(new Location("a"), new Location("b"),
+                10);
+        Traffic traffic = new Traffic();
+        traffic.updateTraffic(corridor, 3);
+        Traffic dense = new DenseTraffic(traffic);
+        Venue venue = new Venue("v", 5, traffic);
+        Venue copy = new Venue("v", 5, dense);
+        int hash = venue.hashCode();
+        assertEquals(venue, copy);
+        assertEquals(hash, copy.hashCode());
+
+        traffic.updateTraffic(corridor, 1);
+        dense.updateTraffic(new Corridor(new Location("a"), new Location(
+                "c"), 10), 1);
+        assertEquals(venue, copy);
+        assertEquals(hash, venue.hashCode());
+        assertEquals(hash, copy.hashCode());
+        assertNotEquals(venue, new Venue("v", 5, traffic));
+        assertEquals(new Event("e", 3).hashCode(), new Event("e", 3)
+                .hashCode());
+        assertEquals(corridor.hashCode(), new Corridor(new Location("a"),
+                new Location("b"), 10).hashCode());
+    }
+
+}